@@ -1,6 +1,6 @@
 import { useEffect, useState } from 'react'
-import { fetchInventoryMetrics } from '../../services/productService'
-import type { InventoryMetric } from '../../types/metrics'
+import { fetchInventoryMetrics, subscribeToChanges } from '../../services/productService'
+import type { InventoryMetric, MetricDelta } from '../../types/metrics'
 import type { Product } from '../../types/product'
 
 import {
@@ -30,6 +30,14 @@ export default function InventoryMetrics({ products }: Props) {
         })
     }, [])
 
+    // Keep the figures current from the change feed instead of re-polling
+    useEffect(() => subscribeToChanges({
+        onMetrics: (deltas) => setMetrics((current) => applyDeltas(current, deltas)),
+        onResync: () => {
+            fetchInventoryMetrics().then(setMetrics).catch(console.error)
+        },
+    }), [])
+
     return (
         <div>
         <Typography
@@ -68,3 +76,24 @@ export default function InventoryMetrics({ products }: Props) {
         </div>
     )
 }
+
+// Adds pushed deltas to the category rows and to the "Overall" row
+function applyDeltas(metrics: InventoryMetric[], deltas: MetricDelta[]): InventoryMetric[] {
+    const rows = new Map(metrics.map((m) => [m.category, { ...m }]))
+    const overall = rows.get('Overall') ?? { category: 'Overall', totalProducts: 0, totalValue: 0, averagePrice: 0 }
+    rows.delete('Overall')
+
+    for (const delta of deltas) {
+        const row = rows.get(delta.category) ?? { category: delta.category, totalProducts: 0, totalValue: 0, averagePrice: 0 }
+        row.totalProducts += delta.totalProducts
+        row.totalValue += delta.totalValue
+        rows.set(delta.category, row)
+        overall.totalProducts += delta.totalProducts
+        overall.totalValue += delta.totalValue
+    }
+
+    // Categories without stock are not listed, as in GET /products/metrics
+    const updated = [...rows.values()].filter((m) => m.totalProducts > 0)
+    updated.push(overall)
+    return updated.map((m) => ({ ...m, averagePrice: m.totalProducts === 0 ? 0 : m.totalValue / m.totalProducts }))
+}
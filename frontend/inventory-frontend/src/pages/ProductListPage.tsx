@@ -1,4 +1,4 @@
-import { useEffect, useState } from 'react'
+import { useEffect, useRef, useState } from 'react'
 
 import { ProductTable } from '../components/ProductTable/ProductTable'
 import ProductFilters from '../components/ProductFilters/ProductFilters'
@@ -6,7 +6,7 @@ import ProductForm from '../components/ProductForm/ProductForm'
 import InventoryMetrics from '../components/InventoryMetrics/InventoryMetrics'
 
 import type { Product } from '../types/product'
-import { deleteProduct, fetchPaginatedProducts, createProduct, updateProduct, fetchFilteredProducts} from '../services/productService'
+import { deleteProduct, fetchPaginatedProducts, createProduct, updateProduct, setStock, fetchFilteredProducts, subscribeToChanges} from '../services/productService'
 
 import { Pagination, Stack } from '@mui/material'
 import { Container, Typography, Box, Button } from '@mui/material'
@@ -31,15 +31,8 @@ export default function ProductListPage() {
     function handleDelete(id: number) {
     if (!confirm('Are you sure you want to delete this item?')) return
 
+        // The page is reloaded when the change feed reports the deletion
         deleteProduct(id)
-            .then(() => {
-                // Reload products after deletion
-                return fetchPaginatedProducts(page, 10)
-            })
-            .then((data) => {
-                setProducts(data.content)
-                setTotalPages(data.totalPages)
-            })
             .catch((err) => {
                 console.error(err)
                 alert('An error occurred while deleting the product')
@@ -50,17 +43,10 @@ export default function ProductListPage() {
         const productToUpdate = products.find(p => p.id === id)
         if (!productToUpdate) return
 
-        const updated = {
-            ...productToUpdate,
-            outOfStock,
-            stockQuantity: outOfStock ? 0 : 10
-        }
-
         try {
-            await updateProduct(id, updated)
-            const data = await fetchPaginatedProducts(page, 10)
-            setProducts(data.content)
-            setTotalPages(data.totalPages)
+            // Conditional on the version read, so nothing written meanwhile is overwritten.
+            // The change feed replaces the product in place
+            await setStock(id, outOfStock ? 0 : 10)
         } catch (err: any) {
             alert(err.message || 'Error updating product stock status')
         }
@@ -77,11 +63,6 @@ export default function ProductListPage() {
             await createProduct(productData);
             }
 
-            // Refresh products
-            const updated = await fetchPaginatedProducts(page, 10);
-            setProducts(updated.content);
-            setTotalPages(updated.totalPages);
-
             // Close form dialog
             setIsFormOpen(false);
             setEditingProduct(undefined);
@@ -105,20 +86,6 @@ export default function ProductListPage() {
         }
     }
 
-    const fetchProducts = async () => {
-        setLoading(true);
-        try {
-            const data = await fetchPaginatedProducts(page, 10);
-            setProducts(data.content);
-            setTotalPages(data.totalPages);
-        } catch (err) {
-            console.error(err);
-            alert("An error occurred while fetching products");
-        } finally {
-            setLoading(false);
-        }
-    };
-
     useEffect(() => {
         setLoading(true)
         fetchPaginatedProducts(page, 10, sortBy1, direction1, sortBy2, direction2)
@@ -133,6 +100,26 @@ export default function ProductListPage() {
         .finally(() => setLoading(false))
     }, [page, sortBy1, direction1, sortBy2, direction2])
 
+    // Reloads the current page without the loading placeholder
+    const reloadPage = useRef(() => {})
+    reloadPage.current = () => {
+        fetchPaginatedProducts(page, 10, sortBy1, direction1, sortBy2, direction2)
+            .then((data) => {
+                setProducts(data.content)
+                setTotalPages(data.totalPages)
+            })
+            .catch(console.error)
+    }
+
+    // Apply pushed changes instead of re-reading the page after every write;
+    // creates and deletes can shift rows between pages, so they reload it
+    useEffect(() => subscribeToChanges({
+        onUpdated: (product) => setProducts((current) => current.map((p) => (p.id === product.id ? product : p))),
+        onCreated: () => reloadPage.current(),
+        onDeleted: () => reloadPage.current(),
+        onResync: () => reloadPage.current(),
+    }), [])
+
     if (loading) return <p className="p-4">Loading...</p>
 
     return (
@@ -181,7 +168,6 @@ export default function ProductListPage() {
                     } else {
                         await createProduct(updatedProduct)
                     }
-                    await fetchProducts()  // refresh product list
                     } catch (error) {
                     console.error("Error saving product", error)
                     } finally {
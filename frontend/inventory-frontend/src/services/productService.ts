@@ -1,6 +1,6 @@
 import axios from 'axios';
 import type { Product, PaginatedResponse } from '../types/product'
-import type { InventoryMetric } from '../types/metrics'
+import type { InventoryMetric, MetricDelta } from '../types/metrics'
 
 const API_BASE_URL = "http://localhost:9090/products";
 
@@ -74,6 +74,36 @@ export async function updateProduct(id: number, product: any) {
     return response.json();
 }
 
+// Sets a product's stock to an absolute quantity. The product is re-read
+// and written back with its version in If-Match, so the update only applies
+// to the version it was built from; on 412 it is read and tried again.
+export async function setStock(id: number, quantity: number, attempts = 3) {
+    for (let attempt = 1; ; attempt++) {
+        const current = await fetch(`${API_BASE_URL}/${id}`);
+        if (!current.ok) {
+            throw new Error("Error fetching product");
+        }
+        const product: Product = await current.json();
+
+        const response = await fetch(`${API_BASE_URL}/${id}`, {
+            method: "PUT",
+            headers: {
+            "Content-Type": "application/json",
+            "If-Match": `"${product.version}"`,
+            },
+            body: JSON.stringify({ ...product, stockQuantity: quantity }),
+        });
+
+        if (response.status === 412 && attempt < attempts) continue;
+        if (!response.ok) {
+            const errorData = await response.json().catch(() => ({}));
+            throw new Error(errorData.error || "Error updating product stock");
+        }
+
+        return response.json();
+    }
+}
+
 export async function deleteProduct(id: number) {
     const response = await fetch(`${API_BASE_URL}/${id}`, {
         method: 'DELETE'
@@ -117,3 +147,52 @@ export async function fetchInventoryMetrics(): Promise<InventoryMetric[]> {
 
     return response.json()
 }
+
+export type ProductChangeHandlers = {
+    onCreated?: (product: Product) => void
+    onUpdated?: (product: Product) => void
+    onDeleted?: (id: number) => void
+    onMetrics?: (deltas: MetricDelta[]) => void
+    // Changes may have been missed: reload whatever is shown
+    onResync?: () => void
+}
+
+let changeSource: EventSource | null = null
+const changeHandlers = new Set<ProductChangeHandlers>()
+
+// Subscribes to the server-sent change feed. All subscribers share one
+// connection, closed when the last of them unsubscribes.
+export function subscribeToChanges(handlers: ProductChangeHandlers): () => void {
+    changeHandlers.add(handlers)
+
+    if (!changeSource) {
+        const source = new EventSource(`${API_BASE_URL}/changes`)
+        let connected = false
+        const on = (event: string, dispatch: (handlers: ProductChangeHandlers, data: any) => void) => {
+            source.addEventListener(event, (e) => {
+                const data = JSON.parse((e as MessageEvent).data)
+                changeHandlers.forEach((h) => dispatch(h, data))
+            })
+        }
+
+        source.onopen = () => {
+            // The browser reconnects on its own; changes made while disconnected were missed
+            if (connected) changeHandlers.forEach((h) => h.onResync?.())
+            connected = true
+        }
+        on('created', (h, product) => h.onCreated?.(product))
+        on('updated', (h, product) => h.onUpdated?.(product))
+        on('deleted', (h, data) => h.onDeleted?.(data.id))
+        on('metrics', (h, deltas) => h.onMetrics?.(deltas))
+        on('resync', (h) => h.onResync?.())
+        changeSource = source
+    }
+
+    return () => {
+        changeHandlers.delete(handlers)
+        if (changeHandlers.size === 0 && changeSource) {
+            changeSource.close()
+            changeSource = null
+        }
+    }
+}
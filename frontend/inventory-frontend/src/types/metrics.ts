@@ -4,3 +4,10 @@ export type InventoryMetric = {
     totalValue: number
     averagePrice: number
 }
+
+// Change to a category's metrics pushed by GET /products/changes
+export type MetricDelta = {
+    category: string
+    totalProducts: number
+    totalValue: number
+}
@@ -8,6 +8,7 @@ export type Product = {
     creationDate?: string
     lastUpdatedDate?: string
     outOfStock?: boolean 
+    version?: number
 }
 
 export type ProductFormInput = {
@@ -24,4 +25,5 @@ export type PaginatedResponse<T> = {
     size: number
     totalElements: number
     totalPages: number
+    nextCursor?: string | null
 }
@@ -0,0 +1,43 @@
+package com.example.inventory_service.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Runs the benchmarks once per thread count and writes one JSON result
+ * file per run, e.g. target/jmh/results-t4.json.
+ * System properties:
+ * jmh.threads (comma-separated, default 1),
+ * jmh.include (benchmark regex, default all),
+ * jmh.catalogSizes (comma-separated, overrides the catalogSize param),
+ * jmh.output (result directory, default target/jmh).
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        File output = new File(System.getProperty("jmh.output", "target/jmh"));
+        output.mkdirs();
+
+        for (String threads : System.getProperty("jmh.threads", "1").split(",")) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(System.getProperty("jmh.include", ".*"))
+                .threads(Integer.parseInt(threads.trim()))
+                .resultFormat(ResultFormatType.JSON)
+                .result(new File(output, "results-t" + threads.trim() + ".json").getPath());
+
+            String catalogSizes = System.getProperty("jmh.catalogSizes");
+            if (catalogSizes != null && !catalogSizes.isBlank()) {
+                options.param("catalogSize", catalogSizes.split(","));
+            }
+            new Runner(options.build()).run();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.inventory_service.benchmark;
+
+import com.example.inventory_service.repository.InMemoryProductRepository;
+import com.example.inventory_service.repository.ProductPersistence;
+import com.example.inventory_service.repository.ProductStore;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Measures retained heap per product for each product store, both for the
+ * store alone and for a full repository with its indexes. Heap use is read
+ * after forcing garbage collection, so run it with a fixed heap and
+ * nothing else in the JVM, e.g. through the benchmark profile:
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.example.inventory_service.benchmark.HeapFootprint
+ * System properties: jmh.catalogSizes (comma-separated, default 1000000).
+ */
+public final class HeapFootprint {
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    private HeapFootprint() {
+    }
+
+    public static void main(String[] args) {
+        String sizes = System.getProperty("jmh.catalogSizes");
+        if (sizes == null || sizes.isBlank()) {
+            sizes = "1000000";
+        }
+        System.out.printf("%-10s %-10s %12s %16s%n", "store", "size", "store B/row", "repository B/row");
+        for (String size : sizes.split(",")) {
+            int n = Integer.parseInt(size.trim());
+            measure("heap", ProductStore::heap, n);
+            measure("columnar", ProductStore::columnar, n);
+        }
+    }
+
+    private static void measure(String name, Supplier<ProductStore> stores, int size) {
+        long baseline = usedHeap();
+        ProductStore store = stores.get();
+        Random random = new Random(42);
+        for (long i = 0; i < size; i++) {
+            var product = SyntheticCatalog.product(i, random);
+            product.setId(i + 1);
+            store.put(product);
+        }
+        long storeBytes = usedHeap() - baseline;
+        store.clear();
+        store = null;
+
+        baseline = usedHeap();
+        InMemoryProductRepository repository = new InMemoryProductRepository(ProductPersistence.none(), stores.get());
+        SyntheticCatalog.seed(repository, size);
+        long repositoryBytes = usedHeap() - baseline;
+        System.out.printf("%-10s %-10d %12d %16d%n", name, size, storeBytes / size, repositoryBytes / size);
+        if (repository.count() != size) {
+            throw new IllegalStateException("Unexpected catalog size " + repository.count());
+        }
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.inventory_service.benchmark;
+
+import com.example.inventory_service.dto.ImportSummary;
+import com.example.inventory_service.model.Product;
+import com.example.inventory_service.repository.InMemoryProductRepository;
+import com.example.inventory_service.service.ProductCsv;
+import com.example.inventory_service.service.ProductService;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rows per second of a CSV bulk import: parsing, parallel validation and
+ * chunked inserts. Each invocation imports a fresh file of {@value #ROWS}
+ * new products, one in twenty of them invalid, into a pre-seeded catalog
+ * that keeps growing over the run. Files are written per thread before
+ * each invocation, outside the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class ProductImportBenchmark {
+
+    static final int ROWS = 10_000;
+
+    @Param({"10000", "100000"})
+    public int catalogSize;
+
+    private ProductService productService;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void seed() {
+        InMemoryProductRepository repository = new InMemoryProductRepository();
+        productService = new ProductService(repository);
+        SyntheticCatalog.seed(repository, catalogSize);
+        sequence.set(catalogSize);
+    }
+
+    @State(Scope.Thread)
+    public static class Upload {
+        private byte[] csv;
+
+        @Setup(Level.Invocation)
+        public void write(ProductImportBenchmark benchmark) {
+            long first = benchmark.sequence.getAndAdd(ROWS);
+            Random random = new Random(first);
+            StringWriter out = new StringWriter(ROWS * 64);
+            try {
+                ProductCsv.writeHeader(out);
+                for (int i = 0; i < ROWS; i++) {
+                    Product product = SyntheticCatalog.product(first + i, random);
+                    if (i % 20 == 0) {
+                        product.setUnitPrice(-1);
+                    }
+                    ProductCsv.writeRow(out, product);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            csv = out.toString().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public ImportSummary importCsv(Upload upload) {
+        InputStreamReader reader = new InputStreamReader(new ByteArrayInputStream(upload.csv), StandardCharsets.UTF_8);
+        return productService.importProducts(ProductCsv.read(reader));
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.inventory_service.benchmark;
+
+import com.example.inventory_service.dto.PageResponse;
+import com.example.inventory_service.model.InventoryMetric;
+import com.example.inventory_service.model.Product;
+import com.example.inventory_service.repository.InMemoryProductRepository;
+import com.example.inventory_service.service.ProductService;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of the service hot paths over a pre-seeded catalog.
+ * The catalog is shared by all benchmark threads, so running with several
+ * threads measures contention on the repository as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class ProductServiceBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int catalogSize;
+
+    private InMemoryProductRepository repository;
+    private ProductService productService;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void seed() {
+        repository = new InMemoryProductRepository();
+        productService = new ProductService(repository);
+        SyntheticCatalog.seed(repository, catalogSize);
+        sequence.set(catalogSize);
+    }
+
+    @Benchmark
+    public Product createProduct() {
+        Product product = SyntheticCatalog.product(sequence.getAndIncrement(), ThreadLocalRandom.current());
+        product.setName("bench " + product.getName());
+        return productService.createProduct(product);
+    }
+
+    @Benchmark
+    public List<Product> filterByNameSelective() {
+        // A sequence-number fragment matches a handful of products
+        return productService.getFilteredProducts("tea " + ThreadLocalRandom.current().nextInt(1000, 10_000), null, null);
+    }
+
+    @Benchmark
+    public List<Product> filterByNameShort() {
+        return productService.getFilteredProducts("ju", List.of("bakery"), false);
+    }
+
+    @Benchmark
+    public List<Product> filterByCategoryAndStock() {
+        return productService.getFilteredProducts(null, List.of("dairy", "pets"), false);
+    }
+
+    @Benchmark
+    public PageResponse<Product> paginateOneKey() {
+        return productService.getPaginatedProducts(ThreadLocalRandom.current().nextInt(100), 10, "name", "asc", null, null);
+    }
+
+    @Benchmark
+    public PageResponse<Product> paginateTwoKeys() {
+        return productService.getPaginatedProducts(ThreadLocalRandom.current().nextInt(100), 10, "category", "asc", "unitPrice", "desc");
+    }
+
+    @Benchmark
+    public PageResponse<Product> queryFilteredPage() {
+        return productService.queryProducts("milk", null, true, 0, 10, "expirationDate", "asc", null, null, null);
+    }
+
+    @Benchmark
+    public List<InventoryMetric> inventoryMetrics() {
+        return productService.getInventoryMetrics();
+    }
+}
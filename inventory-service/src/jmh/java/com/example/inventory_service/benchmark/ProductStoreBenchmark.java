@@ -0,0 +1,63 @@
+package com.example.inventory_service.benchmark;
+
+import com.example.inventory_service.model.Product;
+import com.example.inventory_service.repository.ProductStore;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the product stores alone, below the repository's indexes and
+ * locks: updating existing rows, which the columnar store spreads over its
+ * stripes, and reading whole products, which it has to materialize.
+ * Run with several threads to see how updates of different rows contend.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class ProductStoreBenchmark {
+
+    @Param({"heap", "columnar"})
+    public String store;
+
+    @Param({"100000"})
+    public int catalogSize;
+
+    private ProductStore products;
+    private Product[] updates;
+
+    @Setup(Level.Trial)
+    public void seed() {
+        products = store.equals("heap") ? ProductStore.heap() : ProductStore.columnar();
+        Random random = new Random(42);
+        updates = new Product[catalogSize];
+        for (int i = 0; i < catalogSize; i++) {
+            Product product = SyntheticCatalog.product(i, random);
+            product.setId(i + 1L);
+            product.freeze();
+            products.put(product);
+            updates[i] = product;
+        }
+    }
+
+    @Benchmark
+    public Product updateExisting() {
+        return products.put(updates[ThreadLocalRandom.current().nextInt(catalogSize)]);
+    }
+
+    @Benchmark
+    public Product get() {
+        return products.get(1 + ThreadLocalRandom.current().nextInt(catalogSize));
+    }
+
+    @Benchmark
+    public String name() {
+        return products.name(1 + ThreadLocalRandom.current().nextInt(catalogSize));
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.inventory_service.benchmark;
+
+import com.example.inventory_service.InventoryServiceApplication;
+import com.example.inventory_service.model.Product;
+import com.example.inventory_service.repository.InMemoryProductRepository;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-loop HTTP load test of the running service, side by side on each
+ * server stack: the servlet API on Tomcat's platform-thread pool, the same
+ * API on virtual threads, and the WebFlux routes of the "reactive" profile
+ * on Netty. Writes use the write-ahead log in sync mode, so every stock
+ * adjustment blocks on a disk sync the way a request blocks on slow
+ * downstream work; reads are split between single products, catalog pages
+ * and the dashboard metrics. Prints throughput and latency percentiles per mode.
+ * System properties:
+ * load.modes (default platform,virtual,reactive),
+ * load.concurrency (concurrent clients, default 400),
+ * load.seconds (measured seconds per mode, default 15),
+ * load.writeRatio (share of requests that adjust stock, default 0.2),
+ * load.catalogSize (products seeded, default 10000).
+ */
+public final class ServerLoadTest {
+
+    private static final int WARMUP_SECONDS = 5;
+
+    private ServerLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        // DevTools would restart the first context in a new class loader and run main twice
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        int concurrency = Integer.getInteger("load.concurrency", 400);
+        int seconds = Integer.getInteger("load.seconds", 15);
+        double writeRatio = Double.parseDouble(System.getProperty("load.writeRatio", "0.2"));
+        int catalogSize = Integer.getInteger("load.catalogSize", 10_000);
+
+        List<String> modes = List.of(System.getProperty("load.modes", "platform,virtual,reactive").split(","));
+
+        System.out.printf("%-9s %12s %9s %9s %9s %9s%n", "mode", "requests/s", "p50 ms", "p99 ms", "max ms", "errors");
+        for (String mode : modes) {
+            if (!List.of("platform", "virtual", "reactive").contains(mode)) {
+                throw new IllegalArgumentException("Unknown load mode: " + mode);
+            }
+            Path data = Files.createTempDirectory("inventory-load");
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(InventoryServiceApplication.class)
+                .profiles(mode.equals("reactive") ? new String[] {"reactive"} : new String[0])
+                .properties(
+                    "server.port=0",
+                    "spring.threads.virtual.enabled=" + mode.equals("virtual"),
+                    "inventory.persistence.enabled=true",
+                    "inventory.persistence.directory=" + data,
+                    "inventory.persistence.durability=sync",
+                    "spring.main.banner-mode=off",
+                    "logging.level.root=warn")
+                .run();
+            try {
+                seed(context.getBean(InMemoryProductRepository.class), catalogSize);
+                URI base = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/products/");
+                run(base, concurrency, WARMUP_SECONDS, writeRatio, catalogSize);
+                Result result = run(base, concurrency, seconds, writeRatio, catalogSize);
+                System.out.printf("%-9s %12.0f %9.2f %9.2f %9.2f %9d%n", mode,
+                    result.requests() / (double) seconds, result.percentile(0.50), result.percentile(0.99),
+                    result.percentile(1.0), result.errors());
+            } finally {
+                context.close();
+            }
+        }
+    }
+
+    /** Seeds in large batches, so the sync log is forced once per batch rather than per product. */
+    private static void seed(InMemoryProductRepository repository, int size) {
+        Random random = new Random(42);
+        List<Product> batch = new ArrayList<>();
+        for (long i = 0; i < size; i++) {
+            batch.add(SyntheticCatalog.product(i, random));
+            if (batch.size() == 1_000 || i == size - 1) {
+                repository.insertAll(batch);
+                batch = new ArrayList<>();
+            }
+        }
+    }
+
+    private record Result(long[] latenciesNanos, long errors) {
+
+        long requests() {
+            return latenciesNanos.length;
+        }
+
+        double percentile(double p) {
+            if (latenciesNanos.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(p * latenciesNanos.length) - 1;
+            return latenciesNanos[Math.max(0, index)] / 1e6;
+        }
+    }
+
+    private static Result run(URI base, int concurrency, int seconds, double writeRatio, int catalogSize)
+            throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<long[]>> clients = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                clients.add(executor.submit(() -> loop(client, base, deadline, writeRatio, catalogSize)));
+            }
+        }
+
+        long[][] perClient = new long[clients.size()][];
+        long errors = 0;
+        int total = 0;
+        for (int i = 0; i < clients.size(); i++) {
+            long[] latencies = clients.get(i).get();
+            // The last slot of each client's array holds its error count
+            errors += latencies[latencies.length - 1];
+            perClient[i] = Arrays.copyOf(latencies, latencies.length - 1);
+            total += perClient[i].length;
+        }
+        long[] all = new long[total];
+        int offset = 0;
+        for (long[] latencies : perClient) {
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+            offset += latencies.length;
+        }
+        Arrays.sort(all);
+        return new Result(all, errors);
+    }
+
+    private static long[] loop(HttpClient client, URI base, long deadline, double writeRatio, int catalogSize) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[] latencies = new long[1024];
+        int count = 0;
+        long errors = 0;
+        while (System.nanoTime() < deadline) {
+            String id = String.valueOf(1 + random.nextInt(catalogSize));
+            HttpRequest request;
+            if (random.nextDouble() < writeRatio) {
+                request = HttpRequest.newBuilder(base.resolve(id + "/stock"))
+                    .header("Content-Type", "application/json")
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString("1"))
+                    .build();
+            } else {
+                String read = switch (random.nextInt(3)) {
+                    case 0 -> id;
+                    case 1 -> "paginated?size=50&sortBy1=name&page=" + random.nextInt(10);
+                    default -> "metrics";
+                };
+                request = HttpRequest.newBuilder(base.resolve(read)).GET().build();
+            }
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() != 200) {
+                    errors++;
+                    continue;
+                }
+            } catch (IOException e) {
+                errors++;
+                continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (count == latencies.length - 1) {
+                latencies = Arrays.copyOf(latencies, latencies.length * 2);
+            }
+            latencies[count++] = System.nanoTime() - start;
+        }
+        long[] result = Arrays.copyOf(latencies, count + 1);
+        result[count] = errors;
+        return result;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.inventory_service.benchmark;
+
+import com.example.inventory_service.model.Product;
+import com.example.inventory_service.repository.InMemoryProductRepository;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic products for benchmarks.
+ * Names combine a few dozen words with a sequence number so they stay
+ * unique, categories repeat from a small set, and roughly one product in
+ * ten is out of stock.
+ */
+final class SyntheticCatalog {
+
+    static final String[] WORDS = {
+        "apple", "bread", "cheese", "coffee", "cookie", "cream", "flour", "honey", "juice", "lemon",
+        "milk", "oats", "olive", "pasta", "pear", "pepper", "rice", "salt", "sauce", "soda",
+        "sugar", "tea", "tomato", "tuna", "water", "yogurt", "butter", "beans", "corn", "eggs"
+    };
+
+    static final String[] CATEGORIES = {
+        "Dairy", "Bakery", "Beverages", "Produce", "Pantry", "Frozen", "Snacks", "Meat", "Seafood", "Household",
+        "Personal Care", "Baby", "Pets", "Deli", "Condiments", "Breakfast", "Canned Goods", "Grains", "Spices", "Sweets"
+    };
+
+    private SyntheticCatalog() {
+    }
+
+    static Product product(long sequence, Random random) {
+        Product product = new Product();
+        product.setName(WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + sequence);
+        product.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+        product.setUnitPrice(Math.round(random.nextDouble() * 50_000) / 100.0);
+        product.setStockQuantity(random.nextInt(10) == 0 ? 0 : random.nextInt(500));
+        product.setExpirationDate(random.nextInt(5) == 0 ? null : LocalDate.now().plusDays(random.nextInt(720)));
+        product.setCreationDate(LocalDate.now());
+        product.setLastUpdatedDate(LocalDate.now());
+        return product;
+    }
+
+    static void seed(InMemoryProductRepository repository, int size) {
+        Random random = new Random(42);
+        for (long i = 0; i < size; i++) {
+            repository.save(product(i, random));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.inventory_service.config;
+
+import com.example.inventory_service.repository.DurabilityMode;
+import com.example.inventory_service.repository.InMemoryProductRepository;
+import com.example.inventory_service.repository.ProductPersistence;
+import com.example.inventory_service.repository.WriteAheadLogPersistence;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Chooses where products are persisted. By default nothing is written and
+ * the catalog lives only in memory; with inventory.persistence.enabled=true
+ * every write goes to a write-ahead log and snapshots are taken periodically.
+ */
+@Configuration
+@EnableScheduling
+public class PersistenceConfig {
+
+    @Bean
+    public ProductPersistence productPersistence(
+            @Value("${inventory.persistence.enabled:false}") boolean enabled,
+            @Value("${inventory.persistence.directory:data}") String directory,
+            @Value("${inventory.persistence.durability:batched}") String durability,
+            @Value("${inventory.persistence.sync-interval-ms:50}") long syncIntervalMillis) {
+        if (!enabled) {
+            return ProductPersistence.none();
+        }
+        DurabilityMode mode = DurabilityMode.valueOf(durability.trim().toUpperCase(Locale.ROOT));
+        return new WriteAheadLogPersistence(Path.of(directory), mode, syncIntervalMillis);
+    }
+
+    /**
+     * Takes snapshots so the log replayed on startup stays short.
+     */
+    @Component
+    @ConditionalOnProperty(name = "inventory.persistence.enabled", havingValue = "true")
+    static class SnapshotScheduler {
+
+        private final InMemoryProductRepository repository;
+
+        SnapshotScheduler(InMemoryProductRepository repository) {
+            this.repository = repository;
+        }
+
+        @Scheduled(fixedDelayString = "${inventory.persistence.snapshot-interval-ms:300000}",
+                   initialDelayString = "${inventory.persistence.snapshot-interval-ms:300000}")
+        void snapshot() {
+            repository.snapshot();
+        }
+    }
+}
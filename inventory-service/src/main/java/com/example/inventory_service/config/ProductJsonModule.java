@@ -0,0 +1,230 @@
+package com.example.inventory_service.config;
+
+import com.example.inventory_service.model.Product;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.core.json.UTF8JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serializes each stored product once. The first time a frozen product is
+ * written, Jackson's own serializer writes it into a separate buffer; the
+ * bytes are kept on the product and copied as they are into every later
+ * response, so lists and pages are assembled from fragments instead of
+ * formatting dates and numbers again. A write stores a new product, which
+ * starts without a fragment.
+ * <p>
+ * Fragments are only used where they are byte-identical to what Jackson
+ * would write: UTF-8 output from the application's mapper with its default
+ * configuration. Anything else, such as a JSON view, another charset or
+ * a writer with different features, is serialized as usual.
+ */
+@Component
+public class ProductJsonModule extends SimpleModule {
+
+    public ProductJsonModule() {
+        super("ProductJsonModule");
+    }
+
+    @Override
+    public void setupModule(SetupContext context) {
+        super.setupModule(context);
+        ObjectMapper mapper = context.getOwner();
+        context.addBeanSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription description,
+                                                      JsonSerializer<?> serializer) {
+                if (description.getBeanClass() != Product.class) {
+                    return serializer;
+                }
+                return new FragmentSerializer(mapper, (JsonSerializer<Object>) serializer);
+            }
+        });
+    }
+
+    static final class FragmentSerializer extends StdSerializer<Product>
+            implements ResolvableSerializer, ContextualSerializer {
+        // Room for a typical product, so the buffer is rarely grown
+        private static final int FRAGMENT_BUFFER = 256;
+
+        private final ObjectMapper mapper;
+        private final JsonSerializer<Object> bean;
+
+        FragmentSerializer(ObjectMapper mapper, JsonSerializer<Object> bean) {
+            super(Product.class);
+            this.mapper = mapper;
+            this.bean = bean;
+        }
+
+        @Override
+        public void serialize(Product product, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            // Boot configures the mapper after registering modules, so its config is read on every call
+            if (!product.isFrozen() || !(gen instanceof UTF8JsonGenerator)
+                    || provider.getConfig() != mapper.getSerializationConfig()) {
+                bean.serialize(product, gen, provider);
+                return;
+            }
+            byte[] json = product.cachedJson();
+            if (json == null) {
+                ByteArrayBuilder buffer = new ByteArrayBuilder(FRAGMENT_BUFFER);
+                try (JsonGenerator fragment = mapper.getFactory().createGenerator(buffer, JsonEncoding.UTF8)) {
+                    provider.getConfig().initialize(fragment);
+                    bean.serialize(product, fragment, provider);
+                }
+                json = buffer.toByteArray();
+                product.cacheJson(json);
+            }
+            gen.writeRawValue(new Fragment(json));
+        }
+
+        @Override
+        public void serializeWithType(Product product, JsonGenerator gen, SerializerProvider provider,
+                                      TypeSerializer typeSerializer) throws IOException {
+            bean.serializeWithType(product, gen, provider, typeSerializer);
+        }
+
+        @Override
+        public void resolve(SerializerProvider provider) throws JsonMappingException {
+            if (bean instanceof ResolvableSerializer resolvable) {
+                resolvable.resolve(provider);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property)
+                throws JsonMappingException {
+            if (!(bean instanceof ContextualSerializer contextual)) {
+                return this;
+            }
+            JsonSerializer<?> contextualBean = contextual.createContextual(provider, property);
+            return contextualBean == bean ? this : new FragmentSerializer(mapper, (JsonSerializer<Object>) contextualBean);
+        }
+    }
+
+    /**
+     * Serialized JSON, written by a generator as raw bytes. Generators only
+     * ask a raw value for its unquoted UTF-8 form, which is the stored array
+     * itself; the other forms are derived from it on demand, so the fragment
+     * is still a complete SerializableString wherever else it ends up.
+     */
+    private record Fragment(byte[] json) implements SerializableString {
+
+        @Override
+        public String getValue() {
+            return new String(json, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int charLength() {
+            return getValue().length();
+        }
+
+        @Override
+        public byte[] asUnquotedUTF8() {
+            return json;
+        }
+
+        @Override
+        public int appendUnquotedUTF8(byte[] buffer, int offset) {
+            return append(json, buffer, offset);
+        }
+
+        @Override
+        public int appendUnquoted(char[] buffer, int offset) {
+            return append(getValue().toCharArray(), buffer, offset);
+        }
+
+        @Override
+        public int writeUnquotedUTF8(OutputStream out) throws IOException {
+            out.write(json);
+            return json.length;
+        }
+
+        @Override
+        public int putUnquotedUTF8(ByteBuffer buffer) {
+            return put(json, buffer);
+        }
+
+        @Override
+        public char[] asQuotedChars() {
+            return JsonStringEncoder.getInstance().quoteAsString(getValue());
+        }
+
+        @Override
+        public byte[] asQuotedUTF8() {
+            return JsonStringEncoder.getInstance().quoteAsUTF8(getValue());
+        }
+
+        @Override
+        public int appendQuotedUTF8(byte[] buffer, int offset) {
+            return append(asQuotedUTF8(), buffer, offset);
+        }
+
+        @Override
+        public int appendQuoted(char[] buffer, int offset) {
+            return append(asQuotedChars(), buffer, offset);
+        }
+
+        @Override
+        public int writeQuotedUTF8(OutputStream out) throws IOException {
+            byte[] quoted = asQuotedUTF8();
+            out.write(quoted);
+            return quoted.length;
+        }
+
+        @Override
+        public int putQuotedUTF8(ByteBuffer buffer) {
+            return put(asQuotedUTF8(), buffer);
+        }
+
+        /** Copies a form into the buffer, or returns -1 if it does not fit. */
+        private static int append(byte[] form, byte[] buffer, int offset) {
+            if (offset + form.length > buffer.length) {
+                return -1;
+            }
+            System.arraycopy(form, 0, buffer, offset, form.length);
+            return form.length;
+        }
+
+        private static int append(char[] form, char[] buffer, int offset) {
+            if (offset + form.length > buffer.length) {
+                return -1;
+            }
+            System.arraycopy(form, 0, buffer, offset, form.length);
+            return form.length;
+        }
+
+        private static int put(byte[] form, ByteBuffer buffer) {
+            if (form.length > buffer.remaining()) {
+                return -1;
+            }
+            buffer.put(form);
+            return form.length;
+        }
+    }
+}
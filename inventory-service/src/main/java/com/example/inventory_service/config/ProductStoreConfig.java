@@ -0,0 +1,26 @@
+package com.example.inventory_service.config;
+
+import com.example.inventory_service.repository.ProductStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Locale;
+
+/**
+ * Chooses how the repository holds products in memory: "heap" keeps the
+ * saved Product objects, "columnar" keeps primitive columns and builds a
+ * Product for each read, trading some CPU for a much smaller heap.
+ */
+@Configuration
+public class ProductStoreConfig {
+
+    @Bean
+    public ProductStore productStore(@Value("${inventory.store:heap}") String store) {
+        return switch (store.trim().toLowerCase(Locale.ROOT)) {
+            case "heap" -> ProductStore.heap();
+            case "columnar" -> ProductStore.columnar();
+            default -> throw new IllegalArgumentException("Unknown inventory.store: " + store);
+        };
+    }
+}
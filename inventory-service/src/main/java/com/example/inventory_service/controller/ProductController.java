@@ -1,29 +1,82 @@
 package com.example.inventory_service.controller;
-import com.example.inventory_service.model.InventoryMetric;
 import com.example.inventory_service.model.Product;
+import com.example.inventory_service.service.BatchItem;
+import com.example.inventory_service.service.ImportRow;
+import com.example.inventory_service.service.ProductChangeFeed;
+import com.example.inventory_service.service.ProductCsv;
+import com.example.inventory_service.service.ProductResponseCache;
 import com.example.inventory_service.service.ProductService;
-import com.example.inventory_service.dto.PageResponse;
+import com.example.inventory_service.dto.BatchOperation;
+import com.example.inventory_service.dto.BatchResult;
+import com.example.inventory_service.dto.ImportSummary;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 import jakarta.validation.Valid;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+/**
+ * Servlet API for products. Under the "reactive" profile it is replaced by
+ * the non-blocking routes of {@link ProductRouter}.
+ */
 @RestController
 @RequestMapping("/products")
+@Profile("!reactive")
 public class ProductController {
+    static final String NDJSON = "application/x-ndjson";
+    private static final int EXPORT_BUFFER = 1 << 16;
+
     private final ProductService productService;
+    private final ProductChangeFeed changeFeed;
+    private final ProductResponseCache responseCache;
+    private final ObjectMapper objectMapper;
 
     /**
      * Constructor for ProductController.
      *
      * @param productService the service to handle product operations
+     * @param changeFeed the feed behind GET /products/changes
+     * @param responseCache the cache behind the list, page and metrics reads
+     * @param objectMapper the mapper used to read NDJSON request bodies
      */
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ProductChangeFeed changeFeed,
+                             ProductResponseCache responseCache, ObjectMapper objectMapper) {
         this.productService = productService;
+        this.changeFeed = changeFeed;
+        this.responseCache = responseCache;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -44,29 +97,200 @@ public class ProductController {
      * @param name      the name of the product to filter by (optional)
      * @param category  the category of the product to filter by (optional)
      * @param inStock   whether to filter products that are in stock (optional)
-     * @return a list of products matching the criteria
+     * @param ifNoneMatch the ETag of the client's copy (optional)
+     * @return a list of products matching the criteria, or 304 if unchanged
      */
     @GetMapping
-    public List<Product> getProducts(
+    public ResponseEntity<byte[]> getProducts(
+        @RequestParam(required = false) String name,
+        @RequestParam(required = false) List<String> category,
+        @RequestParam(required = false) Boolean inStock,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        return cached(ifNoneMatch, Arrays.asList("products", name, category, inStock), () -> {
+            if (name == null && (category == null || category.isEmpty()) && inStock == null) {
+                return productService.getAllProducts();
+            }
+            return productService.getFilteredProducts(name, category, inStock);
+        });
+    }
+
+    /**
+     * Answers a catalog-wide read from the response cache. The ETag
+     * changes with every write, so a client holding the current one gets
+     * 304 without the read being computed.
+     */
+    private ResponseEntity<byte[]> cached(String ifNoneMatch, List<?> key, Supplier<?> body) {
+        ProductResponseCache.Response response = responseCache.get(ifNoneMatch, key, body);
+        if (response.notModified()) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(response.etag()).build();
+        }
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if (response.etag() != null) {
+            ok.eTag(response.etag());
+        }
+        return ok.body(response.body());
+    }
+
+    /**
+     * Exports the catalog, or the products matching the same filters as
+     * GET /products, as NDJSON (one product per line) or CSV. Products are
+     * written as they are read from the repository, so memory use stays
+     * flat and the first bytes go out immediately, however large the catalog.
+     *
+     * @param format    "ndjson" (default) or "csv"
+     * @param name      the name of the product to filter by (optional)
+     * @param category  the category of the product to filter by (optional)
+     * @param inStock   whether to filter products that are in stock (optional)
+     * @return the streamed export
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+        @RequestParam(defaultValue = "ndjson") String format,
         @RequestParam(required = false) String name,
         @RequestParam(required = false) List<String> category,
         @RequestParam(required = false) Boolean inStock
     ) {
-        if (name == null && (category == null || category.isEmpty()) && inStock == null) {
-            return productService.getAllProducts();
+        boolean csv = switch (format.toLowerCase(Locale.ROOT)) {
+            case "csv" -> true;
+            case "ndjson" -> false;
+            default -> throw new IllegalArgumentException("Unsupported export format: " + format);
+        };
+        StreamingResponseBody body = out -> {
+            try (Stream<Product> products = productService.streamProducts(name, category, inStock)) {
+                if (csv) {
+                    writeCsv(products.iterator(), out);
+                } else {
+                    writeNdjson(products.iterator(), out);
+                }
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.parseMediaType(NDJSON));
+        if (csv) {
+            response.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products.csv\"");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Streams product changes as server-sent events: "created" and
+     * "updated" carry the product, "deleted" carries its id, and "metrics"
+     * carries deltas for the GET /products/metrics figures. Changes a slow
+     * client has not received yet are coalesced per product; if too many
+     * pile up they are replaced by a "resync" event, after which the
+     * client should reload what it shows. The stream never times out.
+     *
+     * @return the event stream
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges() {
+        SseEmitter emitter = new SseEmitter(0L);
+        ProductChangeFeed.Subscription subscription = changeFeed.subscribe((event, data) ->
+            emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON)));
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(error -> subscription.close());
+        return emitter;
+    }
+
+    private void writeNdjson(Iterator<Product> products, OutputStream out) throws IOException {
+        // Flushing is left to the buffer instead of happening after every product
+        ObjectWriter writer = objectMapper.writerFor(Product.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            while (products.hasNext()) {
+                writer.writeValue(generator, products.next());
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    private static void writeCsv(Iterator<Product> products, OutputStream out) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), EXPORT_BUFFER)) {
+            ProductCsv.writeHeader(writer);
+            while (products.hasNext()) {
+                ProductCsv.writeRow(writer, products.next());
+            }
         }
-        return productService.getFilteredProducts(name, category, inStock);
     }
 
     /**
-     * Retrieves a product by its ID.
+     * Retrieves a product by its ID. The ETag is the product's version, to
+     * be sent back in If-Match when updating it.
      *
      * @param id the ID of the product to retrieve
      * @return the product with the specified ID
      */
+    @GetMapping("/{id}")
+    public ResponseEntity<Product> getProduct(@PathVariable Long id) {
+        Product product = productService.getProduct(id);
+        return ResponseEntity.ok().eTag(etag(product)).body(product);
+    }
+
+    /**
+     * Updates a product. With an If-Match header holding the ETag of the
+     * version the client read, the update only applies if nobody has
+     * written the product since; otherwise it fails with 412 and the
+     * client should re-read and retry. Without the header it applies
+     * unconditionally.
+     *
+     * @param id             the ID of the product to update
+     * @param ifMatch        the expected ETag, or "*" (optional)
+     * @param updatedProduct the new values
+     * @return the updated product, with its new ETag
+     */
     @PutMapping("/{id}")
-    public Product updateProduct(@PathVariable Long id, @Valid @RequestBody Product updatedProduct) {
-        return productService.updateProduct(id, updatedProduct);
+    public ResponseEntity<Product> updateProduct(
+        @PathVariable Long id,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+        @Valid @RequestBody Product updatedProduct
+    ) {
+        Product product = productService.updateProduct(id, updatedProduct, expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(etag(product)).body(product);
+    }
+
+    static String etag(Product product) {
+        return "\"" + product.getVersion() + "\"";
+    }
+
+    /**
+     * Reads the version a conditional request expects from its If-Match
+     * header. ETags are compared strongly, so a weak or unknown tag can
+     * never match.
+     * @return The version, or null when any version will do.
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.contains(",")) {
+            throw new IllegalArgumentException("If-Match must hold a single entity tag.");
+        }
+        if (tag.length() < 2 || !tag.endsWith("\"") || !(tag.startsWith("\"") || tag.startsWith("W/\""))) {
+            throw new IllegalArgumentException("Malformed If-Match header: " + ifMatch);
+        }
+        // Versions are never negative, so -1 fails the check with 412
+        try {
+            return tag.startsWith("W/") ? -1L : Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * Adjusts a product's stock by a delta, e.g. -3 for a sale of three
+     * units. Concurrent adjustments never overwrite each other; a delta
+     * that would take the stock below zero is rejected.
+     *
+     * @param id    the ID of the product
+     * @param delta the number of units to add, or remove if negative
+     * @return the updated product
+     */
+    @PatchMapping("/{id}/stock")
+    public ResponseEntity<Product> adjustStock(@PathVariable Long id, @RequestBody int delta) {
+        Product product = productService.adjustStock(id, delta);
+        return ResponseEntity.ok().eTag(etag(product)).body(product);
     }
 
     /**
@@ -80,28 +304,166 @@ public class ProductController {
         productService.deleteById(id);
     }
 
+    /**
+     * Imports new products from a CSV upload with the export's header
+     * (id and dates are ignored). The body is parsed as it arrives; the
+     * response summarizes how many rows were imported and lists the
+     * rejected ones with their line numbers.
+     *
+     * @param body the request body
+     * @return the import summary
+     */
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ImportSummary importCsv(InputStream body) {
+        return productService.importProducts(ProductCsv.read(reader(body)));
+    }
+
+    /**
+     * Same as {@link #importCsv}, for a body with one product JSON object
+     * per line. A line that is not valid JSON rejects that row only.
+     *
+     * @param body the request body
+     * @return the import summary
+     */
+    @PostMapping(value = "/import", consumes = NDJSON)
+    public ImportSummary importNdjson(InputStream body) {
+        ObjectReader products = objectMapper.readerFor(Product.class);
+        return productService.importProducts(ndjson(body, (line, text) -> {
+            try {
+                return new ImportRow(line, products.readValue(text), null);
+            } catch (JsonProcessingException e) {
+                return new ImportRow(line, null, "Invalid JSON.");
+            }
+        }));
+    }
+
+    /**
+     * Reads a body with one JSON value per line, skipping blank lines. Each
+     * line is parsed when it is pulled, so the body is never held whole.
+     * @param parse Turns a line, with its 1-based number, into an item.
+     */
+    private static <T> Iterator<T> ndjson(InputStream body, BiFunction<Long, String, T> parse) {
+        BufferedReader lines = reader(body);
+        return new Iterator<>() {
+            private long line;
+            private String next = advance();
+
+            private String advance() {
+                try {
+                    String text;
+                    do {
+                        text = lines.readLine();
+                        line++;
+                    } while (text != null && text.isBlank());
+                    return text;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                T item = parse.apply(line, next);
+                next = advance();
+                return item;
+            }
+        };
+    }
+
+    private static BufferedReader reader(InputStream body) {
+        return new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    /**
+     * Applies a batch of creates, updates and deletes in one request.
+     * Each item is {"op": "create" | "update" | "delete", "id": ..., "product": {...}}.
+     * Items succeed or fail independently; the response carries one result
+     * per item, with the status the single-item endpoint would have returned.
+     *
+     * @param operations the batch items, in the order they are applied
+     * @return one result per item
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<BatchResult> applyBatch(@RequestBody List<BatchOperation> operations) {
+        return productService.applyBatch(operations);
+    }
+
+    /**
+     * Same as {@link #applyBatch}, for a body with one JSON item per line
+     * (NDJSON), so a feed can be streamed without building one large array.
+     * Items are read, validated and applied a chunk at a time, each chunk
+     * in its own write section; only the results are kept. A line that is
+     * not valid JSON fails that item only.
+     *
+     * @param body the request body
+     * @return one result per item
+     */
+    @PostMapping(value = "/batch", consumes = NDJSON)
+    public List<BatchResult> applyBatchNdjson(InputStream body) {
+        ObjectReader operations = objectMapper.readerFor(BatchOperation.class);
+        return productService.applyBatchItems(ndjson(body, (line, text) -> {
+            try {
+                return new BatchItem(operations.readValue(text), null);
+            } catch (JsonProcessingException e) {
+                return new BatchItem(null, "Invalid JSON on line " + line + ".");
+            }
+        }));
+    }
+
     /**
      * Retrieves a paginated list of products.
+     * Pages can be addressed by number, or by passing the nextCursor of the
+     * previous response to continue right after its last row. The same
+     * filters as GET /products can be applied; totalElements then counts
+     * only the matching products.
      *
      * @param page the page number to retrieve (0-based)
      * @param size the number of products per page
-     * @return a PageResponse containing the products for the specified page
+     * @param cursor the nextCursor of the previous page (optional)
+     * @param name      the name of the product to filter by (optional)
+     * @param category  the category of the product to filter by (optional)
+     * @param inStock   whether to filter products that are in stock (optional)
+     * @param ifNoneMatch the ETag of the client's copy (optional)
+     * @return a PageResponse containing the products for the specified page, or 304 if unchanged
      */
     @GetMapping("/paginated")
-    public PageResponse<Product> getPaginatedProducts(
-        @RequestParam int page,
+    public ResponseEntity<byte[]> getPaginatedProducts(
+        @RequestParam(defaultValue = "0") int page,
         @RequestParam int size,
         @RequestParam(required = false) String sortBy1,
         @RequestParam(required = false) String direction1,
         @RequestParam(required = false) String sortBy2,
-        @RequestParam(required = false) String direction2
+        @RequestParam(required = false) String direction2,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(required = false) String name,
+        @RequestParam(required = false) List<String> category,
+        @RequestParam(required = false) Boolean inStock,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
     ) {
-        return productService.getPaginatedProducts(page, size, sortBy1, direction1, sortBy2, direction2);
+        List<?> key = Arrays.asList("paginated", page, size, sortBy1, direction1, sortBy2, direction2, cursor, name, category, inStock);
+        return cached(ifNoneMatch, key, () ->
+            productService.queryProducts(name, category, inStock, page, size, sortBy1, direction1, sortBy2, direction2, cursor));
     }
 
+    /**
+     * Retrieves the in-stock totals per category, plus an "Overall" row.
+     *
+     * @param ifNoneMatch the ETag of the client's copy (optional)
+     * @return the metrics, or 304 if unchanged
+     */
     @GetMapping("/metrics")
-        public List<InventoryMetric> getInventoryMetrics() {
-            return productService.getInventoryMetrics();
+    public ResponseEntity<byte[]> getInventoryMetrics(
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        return cached(ifNoneMatch, List.of("metrics"), productService::getInventoryMetrics);
     }
 
 
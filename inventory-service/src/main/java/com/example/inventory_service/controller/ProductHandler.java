@@ -0,0 +1,277 @@
+package com.example.inventory_service.controller;
+
+import com.example.inventory_service.model.InventoryMetric;
+import com.example.inventory_service.model.Product;
+import com.example.inventory_service.service.ProductChangeFeed;
+import com.example.inventory_service.service.ProductService;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.convert.ConversionException;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Non-blocking handlers behind {@link ProductRouter}, with the same
+ * contracts as the matching {@link ProductController} endpoints.
+ * <p>
+ * Reads only touch in-memory indexes and run on the event loop. Right
+ * after a restart the indexes may still be built from the snapshot, so
+ * queries are chained on the repository's index future rather than waiting
+ * for it on the event loop; lookups by ID never wait. Product lists are
+ * returned as a Flux pulled from the repository's ID-ordered
+ * stream, so a slow client's demand paces how far the iterator advances
+ * and nothing is collected up front. Writes may wait for the write-ahead
+ * log to sync, so they run on the bounded elastic scheduler instead.
+ */
+@Component
+@Profile("reactive")
+public class ProductHandler {
+
+    private static final ConversionService CONVERSION = DefaultConversionService.getSharedInstance();
+
+    private final ProductService productService;
+    private final ProductChangeFeed changeFeed;
+    private final Validator validator;
+
+    /**
+     * Constructor for ProductHandler.
+     *
+     * @param productService the service to handle product operations
+     * @param changeFeed     the feed behind GET /products/changes
+     * @param validator      the validator applied to request bodies, as @Valid does in MVC
+     */
+    public ProductHandler(ProductService productService, ProductChangeFeed changeFeed, Validator validator) {
+        this.productService = productService;
+        this.changeFeed = changeFeed;
+        this.validator = validator;
+    }
+
+    /**
+     * GET /products, with the optional name, category and inStock filters.
+     * Streamed as a JSON array, or as NDJSON when the client accepts it.
+     */
+    public Mono<ServerResponse> getProducts(ServerRequest request) {
+        return whenIndexed(() -> {
+            String name = request.queryParam("name").orElse(null);
+            List<String> category = listParam(request, "category");
+            Boolean inStock = param(request, "inStock", Boolean.class, null);
+            Flux<Product> products = Flux.fromStream(() -> productService.streamProducts(name, category, inStock));
+            boolean ndjson = request.headers().accept().stream()
+                .anyMatch(type -> !type.isWildcardType() && type.isCompatibleWith(MediaType.APPLICATION_NDJSON));
+            return ServerResponse.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(products, Product.class);
+        });
+    }
+
+    /**
+     * GET /products/paginated, with the same parameters as the servlet endpoint.
+     */
+    public Mono<ServerResponse> getPaginatedProducts(ServerRequest request) {
+        return whenIndexed(() -> {
+            Integer size = param(request, "size", Integer.class, null);
+            if (size == null) {
+                throw new IllegalArgumentException("Required parameter 'size' is missing.");
+            }
+            return ServerResponse.ok().bodyValue(productService.queryProducts(
+                request.queryParam("name").orElse(null),
+                listParam(request, "category"),
+                param(request, "inStock", Boolean.class, null),
+                param(request, "page", Integer.class, 0),
+                size,
+                request.queryParam("sortBy1").orElse(null),
+                request.queryParam("direction1").orElse(null),
+                request.queryParam("sortBy2").orElse(null),
+                request.queryParam("direction2").orElse(null),
+                request.queryParam("cursor").orElse(null)));
+        });
+    }
+
+    /**
+     * GET /products/metrics.
+     */
+    public Mono<ServerResponse> getInventoryMetrics(ServerRequest request) {
+        return whenIndexed(() -> {
+            Flux<InventoryMetric> metrics = Flux.defer(() -> Flux.fromIterable(productService.getInventoryMetrics()));
+            return ServerResponse.ok().body(metrics, InventoryMetric.class);
+        });
+    }
+
+    /**
+     * GET /products/changes, the same event stream as the servlet endpoint.
+     * The feed's delivery thread waits for the client's demand before each
+     * event, so changes a slow client has not taken yet stay coalesced in
+     * the feed rather than queueing up here.
+     */
+    public Mono<ServerResponse> streamChanges(ServerRequest request) {
+        Flux<ServerSentEvent<Object>> events = Flux.create(sink -> {
+            Semaphore demand = new Semaphore(0);
+            ProductChangeFeed.Subscription subscription = changeFeed.subscribe((event, data) -> {
+                try {
+                    demand.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+                if (sink.isCancelled()) {
+                    throw new IOException("Change stream cancelled");
+                }
+                sink.next(ServerSentEvent.builder(data).event(event).build());
+            });
+            sink.onRequest(n -> demand.release((int) Math.min(n, Integer.MAX_VALUE - demand.availablePermits())));
+            sink.onDispose(() -> {
+                subscription.close();
+                // Wakes a delivery waiting for demand, which then sees the cancellation
+                demand.release();
+            });
+        });
+        return ServerResponse.ok().body(BodyInserters.fromServerSentEvents(events));
+    }
+
+    /**
+     * GET /products/{id}, with the version as ETag.
+     */
+    public Mono<ServerResponse> getProduct(ServerRequest request) {
+        return Mono.defer(() -> {
+            Product product = productService.getProduct(id(request));
+            return ServerResponse.ok().eTag(ProductController.etag(product)).bodyValue(product);
+        });
+    }
+
+    /**
+     * POST /products.
+     */
+    public Mono<ServerResponse> createProduct(ServerRequest request) {
+        return withValidBody(request, product -> offload(() -> productService.createProduct(product))
+            .flatMap(created -> ServerResponse.status(HttpStatus.CREATED).bodyValue(created)));
+    }
+
+    /**
+     * PUT /products/{id}, conditional on If-Match when the header is sent.
+     */
+    public Mono<ServerResponse> updateProduct(ServerRequest request) {
+        return withValidBody(request, product -> offload(() -> productService.updateProduct(id(request), product,
+                ProductController.expectedVersion(request.headers().firstHeader(HttpHeaders.IF_MATCH))))
+            .flatMap(ProductHandler::withEtag));
+    }
+
+    /**
+     * PATCH /products/{id}/stock, with the delta as the body.
+     */
+    public Mono<ServerResponse> adjustStock(ServerRequest request) {
+        return request.bodyToMono(Integer.class)
+            .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Request body is missing.")))
+            .flatMap(delta -> offload(() -> productService.adjustStock(id(request), delta)))
+            .flatMap(ProductHandler::withEtag);
+    }
+
+    /**
+     * DELETE /products/{id}.
+     */
+    public Mono<ServerResponse> deleteProduct(ServerRequest request) {
+        return offload(() -> {
+            productService.deleteById(id(request));
+            return Boolean.TRUE;
+        }).flatMap(deleted -> ServerResponse.noContent().build());
+    }
+
+    private static Mono<ServerResponse> withEtag(Product product) {
+        return ServerResponse.ok().eTag(ProductController.etag(product)).bodyValue(product);
+    }
+
+    /**
+     * Reads and validates the product in the body. Violations are answered
+     * with the same field-to-message map as the servlet API.
+     */
+    private Mono<ServerResponse> withValidBody(ServerRequest request, Function<Product, Mono<ServerResponse>> action) {
+        return request.bodyToMono(Product.class)
+            .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Request body is missing.")))
+            .flatMap(product -> {
+                Map<String, String> errors = new HashMap<>();
+                for (ConstraintViolation<Product> violation : validator.validate(product)) {
+                    errors.put(violation.getPropertyPath().toString(), violation.getMessage());
+                }
+                return errors.isEmpty() ? action.apply(product) : ServerResponse.badRequest().bodyValue(errors);
+            });
+    }
+
+    /**
+     * Runs a query once the indexes are ready, on the thread completing them
+     * if they are not yet. Cancelling the request leaves the shared future
+     * alone; a failed build lets the query run, which then reports it.
+     */
+    private Mono<ServerResponse> whenIndexed(Supplier<Mono<ServerResponse>> query) {
+        return Mono.fromFuture(productService::indexesReady, true)
+            .onErrorComplete()
+            .then(Mono.defer(query));
+    }
+
+    private static <T> Mono<T> offload(Callable<T> write) {
+        return Mono.fromCallable(write).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static Long id(ServerRequest request) {
+        return Long.valueOf(request.pathVariable("id"));
+    }
+
+    /**
+     * Reads an optional query parameter, converted the way MVC binds request parameters.
+     * @throws IllegalArgumentException if the value cannot be converted.
+     */
+    private static <T> T param(ServerRequest request, String name, Class<T> type, T defaultValue) {
+        String value = request.queryParam(name).orElse(null);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return CONVERSION.convert(value, type);
+        } catch (ConversionException e) {
+            throw new IllegalArgumentException("Invalid value for parameter '" + name + "': " + value, e);
+        }
+    }
+
+    /**
+     * Reads a repeatable parameter; like MVC, a single value may also hold a comma-separated list.
+     */
+    private static List<String> listParam(ServerRequest request, String name) {
+        List<String> values = request.queryParams().get(name);
+        if (values == null) {
+            return null;
+        }
+        List<String> result = new ArrayList<>();
+        for (String value : values) {
+            for (String part : value.split(",")) {
+                if (!part.isEmpty()) {
+                    result.add(part);
+                }
+            }
+        }
+        return result;
+    }
+}
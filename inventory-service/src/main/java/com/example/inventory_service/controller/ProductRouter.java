@@ -0,0 +1,48 @@
+package com.example.inventory_service.controller;
+
+import com.example.inventory_service.exception.RestExceptionHandler;
+import com.example.inventory_service.exception.VersionConflictException;
+
+import java.util.NoSuchElementException;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Routes of the non-blocking product API, active with the "reactive"
+ * profile (which also switches the server to WebFlux on Netty). Export,
+ * import and batch uploads are only served by {@link ProductController}.
+ * Errors are answered with the same bodies as {@link RestExceptionHandler}.
+ */
+@Configuration
+@Profile("reactive")
+public class ProductRouter {
+
+    @Bean
+    public RouterFunction<ServerResponse> productRoutes(ProductHandler handler, RestExceptionHandler errors) {
+        return route()
+            .path("/products", products -> products
+                .GET("", handler::getProducts)
+                .POST("", handler::createProduct)
+                .GET("/paginated", handler::getPaginatedProducts)
+                .GET("/metrics", handler::getInventoryMetrics)
+                .GET("/changes", handler::streamChanges)
+                .GET("/{id}", handler::getProduct)
+                .PUT("/{id}", handler::updateProduct)
+                .PATCH("/{id}/stock", handler::adjustStock)
+                .DELETE("/{id}", handler::deleteProduct))
+            .onError(NoSuchElementException.class, (e, request) -> ServerResponse.status(HttpStatus.NOT_FOUND)
+                .bodyValue(errors.handleNotFoundException((NoSuchElementException) e)))
+            .onError(VersionConflictException.class, (e, request) -> ServerResponse.status(HttpStatus.PRECONDITION_FAILED)
+                .bodyValue(errors.handleVersionConflict((VersionConflictException) e)))
+            .onError(IllegalArgumentException.class, (e, request) -> ServerResponse.badRequest()
+                .bodyValue(errors.handleIllegalArgument((IllegalArgumentException) e)))
+            .build();
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.inventory_service.dto;
+
+import com.example.inventory_service.model.Product;
+
+/**
+ * One item of a batch request: "create" with a product, "update" with an
+ * ID and a product, or "delete" with an ID.
+ */
+public class BatchOperation {
+    private String op;
+    private Long id;
+    private Product product;
+
+    public BatchOperation() {
+    }
+
+    public BatchOperation(String op, Long id, Product product) {
+        this.op = op;
+        this.id = id;
+        this.product = product;
+    }
+
+    public String getOp() {
+        return op;
+    }
+
+    public void setOp(String op) {
+        this.op = op;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+
+    public void setProduct(Product product) {
+        this.product = product;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.inventory_service.dto;
+
+/**
+ * Outcome of one batch item, in request order. The status is the HTTP
+ * status the single-item endpoint would have answered with.
+ */
+public class BatchResult {
+    private int index;
+    private String op;
+    private int status;
+    private Long id;
+    private String error;
+
+    public BatchResult(int index, String op, int status, Long id, String error) {
+        this.index = index;
+        this.op = op;
+        this.status = status;
+        this.id = id;
+        this.error = error;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getOp() {
+        return op;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
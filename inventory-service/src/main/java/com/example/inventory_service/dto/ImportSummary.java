@@ -0,0 +1,59 @@
+package com.example.inventory_service.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import: how many rows were read and imported, and why
+ * rows were rejected. Only the first rejections are listed, so the summary
+ * of a large bad file stays small; the count covers all of them.
+ */
+public class ImportSummary {
+    private long rows;
+    private long imported;
+    private long rejected;
+    private List<RejectedRow> rejectedRows;
+
+    public ImportSummary(long rows, long imported, long rejected, List<RejectedRow> rejectedRows) {
+        this.rows = rows;
+        this.imported = imported;
+        this.rejected = rejected;
+        this.rejectedRows = rejectedRows;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public List<RejectedRow> getRejectedRows() {
+        return rejectedRows;
+    }
+
+    /**
+     * A row that was not imported, by its line in the uploaded file.
+     */
+    public static class RejectedRow {
+        private long line;
+        private String error;
+
+        public RejectedRow(long line, String error) {
+            this.line = line;
+            this.error = error;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.inventory_service.dto;
+
+/**
+ * Change to one category's inventory metrics, to be added to the figures
+ * of GET /products/metrics (and to its "Overall" row). The average price
+ * is not included; it follows from the new totals.
+ */
+public class MetricDelta {
+    private String category;
+    private int totalProducts;
+    private double totalValue;
+
+    public MetricDelta(String category, int totalProducts, double totalValue) {
+        this.category = category;
+        this.totalProducts = totalProducts;
+        this.totalValue = totalValue;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public int getTotalProducts() {
+        return totalProducts;
+    }
+
+    public double getTotalValue() {
+        return totalValue;
+    }
+}
@@ -8,13 +8,19 @@ public class PageResponse<T> {
     private int size;
     private long totalElements;
     private int totalPages;
+    private String nextCursor;
 
     public PageResponse(List<T> content, int page, int size, long totalElements) {
+        this(content, page, size, totalElements, null);
+    }
+
+    public PageResponse(List<T> content, int page, int size, long totalElements, String nextCursor) {
         this.content = content;
         this.page = page;
         this.size = size;
         this.totalElements = totalElements;
         this.totalPages = (int) Math.ceil((double) totalElements / size);
+        this.nextCursor = nextCursor;
     }
 
     public List<T> getContent() {
@@ -56,4 +62,16 @@ public class PageResponse<T> {
     public void setTotalPages(int totalPages) {
         this.totalPages = totalPages;
     }
+
+    /**
+     * Opaque token for fetching the page after this one, or null when this
+     * page was not full.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
 }
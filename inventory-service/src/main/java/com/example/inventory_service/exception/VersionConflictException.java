@@ -0,0 +1,12 @@
+package com.example.inventory_service.exception;
+
+/**
+ * Thrown when a conditional write expected another version of a product
+ * than the stored one, meaning someone else wrote it in between.
+ */
+public class VersionConflictException extends RuntimeException {
+
+    public VersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -2,6 +2,7 @@ package com.example.inventory_service.model;
 
 import java.time.LocalDate;
 import jakarta.validation.constraints.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class Product {
@@ -19,6 +20,7 @@ public class Product {
     private double unitPrice;
 
     @FutureOrPresent(message = "Product expiration date must be today or in the future")
+    @StorableDate(message = "Product expiration date is too far in the future")
     private LocalDate expirationDate;
     
     @NotNull(message = "Quantity Stock is required")
@@ -28,6 +30,15 @@ public class Product {
     private LocalDate creationDate;
     
     private LocalDate lastUpdatedDate;
+
+    // Incremented by the repository on every write; 0 until first saved
+    private long version;
+
+    // Set when the repository stores the product; readers then share it without copying
+    private boolean frozen;
+
+    // UTF-8 JSON of the frozen product, written on its first serialization
+    private volatile byte[] json;
     
     // Getters and Setters
     public Long getId() {
@@ -35,6 +46,7 @@ public class Product {
     }
 
     public void setId(Long id) {
+        checkMutable();
         this.id = id;
     }
 
@@ -43,6 +55,7 @@ public class Product {
     }
 
     public void setName(String name) {
+        checkMutable();
         this.name = name;
     }
 
@@ -51,6 +64,7 @@ public class Product {
     }
 
     public void setCategory(String category) {
+        checkMutable();
         this.category = category;
     }
 
@@ -59,6 +73,7 @@ public class Product {
     }
 
     public void setUnitPrice(double unitPrice) {
+        checkMutable();
         this.unitPrice = unitPrice;
     }
 
@@ -67,6 +82,7 @@ public class Product {
     }
 
     public void setExpirationDate(LocalDate expirationDate) {
+        checkMutable();
         this.expirationDate = expirationDate;
     }
 
@@ -75,6 +91,7 @@ public class Product {
     }
 
     public void setStockQuantity(int stockQuantity) {
+        checkMutable();
         this.stockQuantity = stockQuantity;
     }
 
@@ -83,6 +100,7 @@ public class Product {
     }
 
     public void setCreationDate(LocalDate creationDate) {
+        checkMutable();
         this.creationDate = creationDate;
     }
 
@@ -91,9 +109,59 @@ public class Product {
     }
 
     public void setLastUpdatedDate(LocalDate lastUpdatedDate) {
+        checkMutable();
         this.lastUpdatedDate = lastUpdatedDate;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        checkMutable();
+        this.version = version;
+    }
+
+    /**
+     * Makes the product read-only. The repository freezes every product it
+     * stores, so the same instance can be handed to any number of readers
+     * and serialized while writers replace it; changing a stored product
+     * means saving a new instance.
+     */
+    public void freeze() {
+        frozen = true;
+    }
+
+    @JsonIgnore
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Returns the product's JSON as kept by {@link #cacheJson}, or null
+     * if it has not been serialized yet.
+     */
+    public byte[] cachedJson() {
+        return json;
+    }
+
+    /**
+     * Keeps the product's serialized JSON for later responses. Only a
+     * frozen product keeps it: its fields can no longer change, and a
+     * write stores a new instance, which starts without any.
+     */
+    public void cacheJson(byte[] json) {
+        if (frozen) {
+            this.json = json;
+        }
+    }
+
+    private void checkMutable() {
+        if (frozen) {
+            throw new IllegalStateException("Product " + id + " is stored and read-only; save a new instance instead.");
+        }
+    }
+
     @JsonProperty("outOfStock")
     public boolean isOutOfStock() {
         return stockQuantity == 0;
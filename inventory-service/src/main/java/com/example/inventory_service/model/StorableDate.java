@@ -0,0 +1,44 @@
+package com.example.inventory_service.model;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.time.LocalDate;
+
+/**
+ * A date the stores can keep. Snapshots and the columnar store encode
+ * dates as int epoch days, with Integer.MIN_VALUE standing for no date,
+ * so a date outside that range is rejected before anything is written.
+ * A null date is valid.
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+@Constraint(validatedBy = StorableDate.Validator.class)
+public @interface StorableDate {
+
+    long MIN_EPOCH_DAY = Integer.MIN_VALUE + 1L;
+    long MAX_EPOCH_DAY = Integer.MAX_VALUE;
+
+    String message() default "Date is outside the supported range";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+
+    class Validator implements ConstraintValidator<StorableDate, LocalDate> {
+        @Override
+        public boolean isValid(LocalDate date, ConstraintValidatorContext context) {
+            if (date == null) {
+                return true;
+            }
+            long epochDay = date.toEpochDay();
+            return epochDay >= MIN_EPOCH_DAY && epochDay <= MAX_EPOCH_DAY;
+        }
+    }
+}
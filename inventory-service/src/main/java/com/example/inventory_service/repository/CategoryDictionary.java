@@ -0,0 +1,86 @@
+package com.example.inventory_service.repository;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Assigns a small int code to every distinct category, so storage, indexes
+ * and metrics can hold and compare ints instead of strings. Each code keeps
+ * one canonical String instance and its normalized form (lowercase, trimmed),
+ * computed once when the category first appears.
+ * <p>
+ * Codes are dense, start at 0 and are never reused. A catalog has a few
+ * dozen categories, so entries are never removed; adding one copies the
+ * small entry array, which keeps lookups by code lock-free.
+ */
+final class CategoryDictionary {
+
+    /** Code of a missing (null) category. */
+    static final int NONE = -1;
+
+    private record Entry(String value, String normalized) {}
+
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    private final ReentrantLock growLock = new ReentrantLock();
+    private volatile Entry[] entries = new Entry[0];
+
+    /**
+     * Returns the code of a category, assigning the next one if it is new.
+     * @param category The category, or null.
+     * @return The code, or {@link #NONE} for null.
+     */
+    int encode(String category) {
+        if (category == null) {
+            return NONE;
+        }
+        Integer code = codes.get(category);
+        if (code != null) {
+            return code;
+        }
+        growLock.lock();
+        try {
+            code = codes.get(category);
+            if (code == null) {
+                Entry[] grown = Arrays.copyOf(entries, entries.length + 1);
+                code = entries.length;
+                grown[code] = new Entry(category, normalize(category));
+                // Publish the entry before the code can be looked up
+                entries = grown;
+                codes.put(category, code);
+            }
+            return code;
+        } finally {
+            growLock.unlock();
+        }
+    }
+
+    /**
+     * @return The code of a known category, or {@link #NONE} if it has none.
+     */
+    int codeOf(String category) {
+        Integer code = category != null ? codes.get(category) : null;
+        return code != null ? code : NONE;
+    }
+
+    /**
+     * @return The canonical instance of the category, or null for {@link #NONE}.
+     */
+    String value(int code) {
+        return code == NONE ? null : entries[code].value();
+    }
+
+    String normalized(int code) {
+        return code == NONE ? null : entries[code].normalized();
+    }
+
+    /** @return The number of codes assigned so far; every code is below it. */
+    int size() {
+        return entries.length;
+    }
+
+    static String normalize(String category) {
+        return category.toLowerCase(Locale.ROOT).trim();
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.inventory_service.repository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Secondary index from category code to product IDs.
+ * Categories are dictionary-encoded, so the index is an array of ID sets
+ * and a substring lookup only compares the normalized form of each
+ * distinct category, computed once by the dictionary, instead of
+ * normalizing the category of every product.
+ */
+class CategoryIndex {
+
+    private final CategoryDictionary dictionary;
+    private final ReentrantLock growLock = new ReentrantLock();
+    private volatile Set<Long>[] idsByCode = newSets(0);
+
+    CategoryIndex(CategoryDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    void add(int code, Long id) {
+        if (code == CategoryDictionary.NONE) {
+            return;
+        }
+        idsFor(code).add(id);
+    }
+
+    void remove(int code, Long id) {
+        Set<Long>[] sets = idsByCode;
+        if (code != CategoryDictionary.NONE && code < sets.length) {
+            sets[code].remove(id);
+        }
+    }
+
+    /**
+     * Collects the IDs of every product whose normalized category contains
+     * one of the normalized fragments.
+     * @param fragments The requested category fragments.
+     * @return The union of matching IDs.
+     */
+    Set<Long> idsMatching(Collection<String> fragments) {
+        Set<Long>[] sets = idsByCode;
+        BitSet codes = codesMatching(fragments);
+        Set<Long> result = new HashSet<>();
+        for (int code = codes.nextSetBit(0); code >= 0 && code < sets.length; code = codes.nextSetBit(code + 1)) {
+            result.addAll(sets[code]);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the codes of every category whose normalized form contains one
+     * of the normalized fragments.
+     * @param fragments The requested category fragments.
+     * @return The matching codes.
+     */
+    BitSet codesMatching(Collection<String> fragments) {
+        List<String> normalized = fragments.stream().map(CategoryDictionary::normalize).toList();
+        BitSet codes = new BitSet();
+        for (int code = 0; code < dictionary.size(); code++) {
+            String category = dictionary.normalized(code);
+            if (normalized.stream().anyMatch(category::contains)) {
+                codes.set(code);
+            }
+        }
+        return codes;
+    }
+
+    void clear() {
+        for (Set<Long> ids : idsByCode) {
+            ids.clear();
+        }
+    }
+
+    private Set<Long> idsFor(int code) {
+        Set<Long>[] sets = idsByCode;
+        if (code < sets.length) {
+            return sets[code];
+        }
+        growLock.lock();
+        try {
+            sets = idsByCode;
+            if (code >= sets.length) {
+                Set<Long>[] grown = Arrays.copyOf(sets, dictionary.size());
+                for (int i = sets.length; i < grown.length; i++) {
+                    grown[i] = ConcurrentHashMap.newKeySet();
+                }
+                idsByCode = grown;
+                sets = grown;
+            }
+            return sets[code];
+        } finally {
+            growLock.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<Long>[] newSets(int size) {
+        return (Set<Long>[]) new Set[size];
+    }
+}
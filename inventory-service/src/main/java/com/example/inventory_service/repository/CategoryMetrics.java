@@ -0,0 +1,173 @@
+package com.example.inventory_service.repository;
+
+import com.example.inventory_service.model.InventoryMetric;
+import com.example.inventory_service.model.Product;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Running inventory totals per category, covering products that are in stock.
+ * Every write applies the difference between the old and new product, so
+ * reading the metrics costs one entry per category instead of a catalog scan.
+ * Values are summed exactly as BigDecimals, so adding and removing the same
+ * product always cancels out and the totals are the exact sums of the
+ * products' values, rounded once when read. Totals are indexed by category
+ * code, so a write finds its counters without hashing the category.
+ * <p>
+ * The valuation helper is public, so anything else that sums changes to
+ * these totals, such as the change feed's metric deltas, values products
+ * exactly the same way.
+ */
+public class CategoryMetrics {
+
+    private static final class Totals {
+        final LongAdder products = new LongAdder();
+        final LongAdder quantity = new LongAdder();
+        final AtomicReference<BigDecimal> value = new AtomicReference<>(BigDecimal.ZERO);
+    }
+
+    private final CategoryDictionary dictionary;
+    private final ReentrantLock growLock = new ReentrantLock();
+    private volatile AtomicReferenceArray<Totals> byCode = new AtomicReferenceArray<>(0);
+
+    CategoryMetrics(CategoryDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Applies a write. Either side may be null for inserts and deletes.
+     * Must be called with the product's stripe lock held, so the deltas for
+     * one product are never interleaved.
+     * @param previousCode The category code of the previous product.
+     * @param currentCode The category code of the current product.
+     */
+    void update(Product previous, int previousCode, Product current, int currentCode) {
+        if (counts(previous, previousCode)) {
+            add(previous, previousCode, -1);
+        }
+        if (counts(current, currentCode)) {
+            add(current, currentCode, 1);
+        }
+    }
+
+    /**
+     * Adds a batch of new products. The batch is summed per category first,
+     * so each category's counters are updated once rather than once per
+     * product. Must be called with the repository's exclusive lock held.
+     */
+    void addAll(List<Product> products) {
+        int categories = dictionary.size();
+        long[] counts = new long[categories];
+        long[] quantities = new long[categories];
+        BigDecimal[] values = new BigDecimal[categories];
+        for (Product product : products) {
+            int code = dictionary.codeOf(product.getCategory());
+            if (counts(product, code)) {
+                counts[code]++;
+                quantities[code] += product.getStockQuantity();
+                values[code] = values[code] == null ? value(product) : values[code].add(value(product));
+            }
+        }
+        for (int code = 0; code < categories; code++) {
+            if (counts[code] > 0) {
+                Totals totals = totalsFor(code);
+                totals.products.add(counts[code]);
+                totals.quantity.add(quantities[code]);
+                totals.value.accumulateAndGet(values[code], BigDecimal::add);
+            }
+        }
+    }
+
+    /**
+     * Reads the totals of every category that has products in stock. Each
+     * counter is read separately, so a write landing mid-read may be seen
+     * in one figure before the other.
+     * @return One metric per category; the average price is stock-weighted.
+     */
+    List<InventoryMetric> snapshot() {
+        List<InventoryMetric> metrics = new ArrayList<>();
+        AtomicReferenceArray<Totals> totalsByCode = byCode;
+        for (int code = 0; code < totalsByCode.length(); code++) {
+            Totals totals = totalsByCode.get(code);
+            if (totals == null || totals.products.sum() <= 0) {
+                continue;
+            }
+            int quantity = (int) totals.quantity.sum();
+            double value = totals.value.get().doubleValue();
+            double averagePrice = quantity == 0 ? 0 : value / quantity;
+            metrics.add(new InventoryMetric(dictionary.value(code), quantity, value, averagePrice));
+        }
+        return metrics;
+    }
+
+    void clear() {
+        byCode = new AtomicReferenceArray<>(0);
+    }
+
+    private void add(Product product, int code, int sign) {
+        Totals totals = totalsFor(code);
+        totals.products.add(sign);
+        totals.quantity.add((long) sign * product.getStockQuantity());
+        BigDecimal value = value(product);
+        totals.value.accumulateAndGet(sign < 0 ? value.negate() : value, BigDecimal::add);
+    }
+
+    /**
+     * @return Whether a product counts toward its category's totals: it has a category and stock.
+     */
+    public static boolean counts(Product product) {
+        return product != null && product.getCategory() != null && !product.isOutOfStock();
+    }
+
+    /**
+     * @return The stock value of a product: exactly the double unit price
+     *         times quantity, which is what the totals add up. A value too
+     *         large for a double counts as the largest one.
+     */
+    public static BigDecimal value(Product product) {
+        double value = product.getUnitPrice() * product.getStockQuantity();
+        return new BigDecimal(Double.isFinite(value) ? value : Double.MAX_VALUE);
+    }
+
+    /**
+     * Finds the counters of a category. Creating them is rare, so it is
+     * done under a lock, while lookups of existing counters are lock-free.
+     */
+    private Totals totalsFor(int code) {
+        AtomicReferenceArray<Totals> table = byCode;
+        Totals totals = code < table.length() ? table.get(code) : null;
+        if (totals != null) {
+            return totals;
+        }
+        growLock.lock();
+        try {
+            table = byCode;
+            if (code >= table.length()) {
+                AtomicReferenceArray<Totals> grown = new AtomicReferenceArray<>(dictionary.size());
+                for (int i = 0; i < table.length(); i++) {
+                    grown.set(i, table.get(i));
+                }
+                byCode = grown;
+                table = grown;
+            }
+            totals = table.get(code);
+            if (totals == null) {
+                totals = new Totals();
+                table.set(code, totals);
+            }
+            return totals;
+        } finally {
+            growLock.unlock();
+        }
+    }
+
+    private static boolean counts(Product product, int code) {
+        return product != null && code != CategoryDictionary.NONE && !product.isOutOfStock();
+    }
+}
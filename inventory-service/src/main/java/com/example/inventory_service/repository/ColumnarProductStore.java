@@ -0,0 +1,363 @@
+package com.example.inventory_service.repository;
+
+import com.example.inventory_service.model.Product;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Products stored column-wise in primitive arrays: IDs and versions as longs, prices as
+ * doubles, quantities as ints, dates as int epoch days and categories as
+ * int codes from a {@link CategoryDictionary}. Only the name is kept as a String. A row
+ * costs a few dozen bytes plus its name, instead of a Product with a boxed
+ * ID and three LocalDate objects, and the GC has far fewer objects to trace.
+ * <p>
+ * Every read of a whole product materializes a new, frozen Product, so
+ * callers get a detached view that is garbage as soon as the response is
+ * written; that is the price of the smaller heap, paid per row read.
+ * Lookups that need a single column, such as {@link #name}, read it
+ * without building a Product, and replaced or removed rows are only
+ * materialized after the locks are released.
+ * <p>
+ * Two levels of locks keep writers apart. The structure lock guards the
+ * slot map, the free list and the column arrays; only inserts, removals
+ * and growth take it exclusively. Updating an existing row, the common
+ * write, shares it and locks one of {@value #STRIPES} stripes by slot, so
+ * updates of different rows run in parallel. Reads are optimistic on both
+ * and only fall back to read locks when they overlap a write. Run
+ * ProductStoreBenchmark in the benchmark profile to compare the stores.
+ */
+class ColumnarProductStore implements ProductStore {
+
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int CHUNK = 1024;
+    private static final int STRIPES = 64;
+
+    /** Column arrays are swapped together when they grow, so readers see matching lengths. */
+    private record Columns(long[] ids, String[] names, int[] categories, double[] prices, int[] quantities,
+                           int[] expirations, int[] creations, int[] updates, long[] versions) {
+
+        static Columns allocate(int capacity) {
+            return new Columns(new long[capacity], new String[capacity], new int[capacity], new double[capacity],
+                new int[capacity], new int[capacity], new int[capacity], new int[capacity], new long[capacity]);
+        }
+
+        Columns grow(int capacity) {
+            return new Columns(Arrays.copyOf(ids, capacity), Arrays.copyOf(names, capacity),
+                Arrays.copyOf(categories, capacity), Arrays.copyOf(prices, capacity),
+                Arrays.copyOf(quantities, capacity), Arrays.copyOf(expirations, capacity),
+                Arrays.copyOf(creations, capacity), Arrays.copyOf(updates, capacity),
+                Arrays.copyOf(versions, capacity));
+        }
+
+        int capacity() {
+            return ids.length;
+        }
+    }
+
+    /** One row read out of the columns, before it is turned into a Product. */
+    private record Row(long id, String name, int category, double price, int quantity,
+                       int expiration, int creation, int update, long version) {}
+
+    private final StampedLock structure = new StampedLock();
+    // Guard the column values of the slots they cover, slot % STRIPES
+    private final StampedLock[] stripes = new StampedLock[STRIPES];
+    private final LongIntMap slots = new LongIntMap();
+    private Columns columns = Columns.allocate(INITIAL_CAPACITY);
+    // Slots below this have been handed out; freed ones are reused first
+    private int used;
+    private int[] free = new int[16];
+    private int freeCount;
+
+    // Replaced by the repository's own before the first write
+    private CategoryDictionary dictionary = new CategoryDictionary();
+
+    ColumnarProductStore() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new StampedLock();
+        }
+    }
+
+    @Override
+    public void useCategories(CategoryDictionary dictionary) {
+        if (used > 0) {
+            throw new IllegalStateException("Categories must be shared before anything is stored");
+        }
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public void restore(ProductSnapshot snapshot) {
+        Product row = new Product();
+        for (int i = 0; i < snapshot.rows(); i++) {
+            put(snapshot.read(i, row));
+        }
+    }
+
+    @Override
+    public Product get(long id) {
+        Row row = read(id);
+        return row != null ? toProduct(row) : null;
+    }
+
+    @Override
+    public String name(long id) {
+        Row row = read(id);
+        return row != null ? row.name() : null;
+    }
+
+    @Override
+    public boolean contains(long id) {
+        long stamp = structure.tryOptimisticRead();
+        boolean found = slots.get(id) >= 0;
+        if (!structure.validate(stamp)) {
+            stamp = structure.readLock();
+            try {
+                found = slots.get(id) >= 0;
+            } finally {
+                structure.unlockRead(stamp);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Product put(Product product) {
+        long id = product.getId();
+        int category = dictionary.encode(product.getCategory());
+        Row previous = null;
+        boolean stored = false;
+        // An existing row is updated in place under its stripe alone
+        long stamp = structure.readLock();
+        try {
+            int slot = slots.get(id);
+            if (slot >= 0) {
+                StampedLock stripe = stripes[slot % STRIPES];
+                long rowStamp = stripe.writeLock();
+                try {
+                    previous = readColumns(id, slot);
+                    write(slot, product, category);
+                    stored = true;
+                } finally {
+                    stripe.unlockWrite(rowStamp);
+                }
+            }
+        } finally {
+            structure.unlockRead(stamp);
+        }
+        if (!stored) {
+            stamp = structure.writeLock();
+            try {
+                int slot = slots.get(id);
+                if (slot >= 0) {
+                    previous = readSlot(id, slot);
+                } else {
+                    slot = allocate();
+                    slots.put(id, slot);
+                }
+                write(slot, product, category);
+            } finally {
+                structure.unlockWrite(stamp);
+            }
+        }
+        return previous != null ? toProduct(previous) : null;
+    }
+
+    @Override
+    public Product remove(long id) {
+        Row previous;
+        long stamp = structure.writeLock();
+        try {
+            int slot = slots.get(id);
+            if (slot < 0) {
+                return null;
+            }
+            previous = readSlot(id, slot);
+            slots.remove(id);
+            columns.names()[slot] = null;
+            if (freeCount == free.length) {
+                free = Arrays.copyOf(free, freeCount * 2);
+            }
+            free[freeCount++] = slot;
+        } finally {
+            structure.unlockWrite(stamp);
+        }
+        return toProduct(previous);
+    }
+
+    @Override
+    public long size() {
+        long stamp = structure.tryOptimisticRead();
+        int size = slots.size();
+        if (!structure.validate(stamp)) {
+            stamp = structure.readLock();
+            try {
+                size = slots.size();
+            } finally {
+                structure.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Materializes every product. Slots are read a chunk at a time under the
+     * structure's read lock, so a full scan never holds inserts off for
+     * long and updates go on around it; like
+     * iterating a concurrent map, the result is weakly consistent.
+     */
+    @Override
+    public List<Product> values() {
+        List<Product> values = new ArrayList<>((int) size());
+        List<Row> chunk = new ArrayList<>(CHUNK);
+        for (int start = 0; ; start += CHUNK) {
+            chunk.clear();
+            boolean more;
+            long stamp = structure.readLock();
+            try {
+                int end = Math.min(used, start + CHUNK);
+                for (int slot = start; slot < end; slot++) {
+                    long id = columns.ids()[slot];
+                    if (slots.get(id) == slot) {
+                        chunk.add(readSlot(id, slot));
+                    }
+                }
+                more = end < used;
+            } finally {
+                structure.unlockRead(stamp);
+            }
+            for (Row row : chunk) {
+                values.add(toProduct(row));
+            }
+            if (!more) {
+                return values;
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        long stamp = structure.writeLock();
+        try {
+            slots.clear();
+            columns = Columns.allocate(INITIAL_CAPACITY);
+            used = 0;
+            freeCount = 0;
+        } finally {
+            structure.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Reads a row optimistically, falling back to the read locks when a
+     * write to the structure or to the row's stripe overlaps it.
+     * @return The row, or null if there is none with this ID.
+     */
+    private Row read(long id) {
+        long stamp = structure.tryOptimisticRead();
+        int slot = slots.get(id);
+        Row row = null;
+        boolean valid = true;
+        if (slot >= 0) {
+            StampedLock stripe = stripes[slot % STRIPES];
+            long rowStamp = stripe.tryOptimisticRead();
+            row = readColumns(id, slot);
+            valid = stripe.validate(rowStamp);
+        }
+        if (valid && structure.validate(stamp)) {
+            return row;
+        }
+        stamp = structure.readLock();
+        try {
+            slot = slots.get(id);
+            return slot >= 0 ? readSlot(id, slot) : null;
+        } finally {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Reads a row while updates to other rows go on. Called with the
+     * structure locked, shared or exclusively.
+     */
+    private Row readSlot(long id, int slot) {
+        StampedLock stripe = stripes[slot % STRIPES];
+        long rowStamp = stripe.tryOptimisticRead();
+        Row row = readColumns(id, slot);
+        if (!stripe.validate(rowStamp)) {
+            rowStamp = stripe.readLock();
+            try {
+                row = readColumns(id, slot);
+            } finally {
+                stripe.unlockRead(rowStamp);
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Copies a row out of the columns. Under an optimistic stamp the values
+     * may be torn, but the bounds check keeps the read from throwing before
+     * it is validated.
+     */
+    private Row readColumns(long id, int slot) {
+        Columns c = columns;
+        if (slot >= c.capacity()) {
+            return null;
+        }
+        return new Row(id, c.names()[slot], c.categories()[slot], c.prices()[slot], c.quantities()[slot],
+            c.expirations()[slot], c.creations()[slot], c.updates()[slot], c.versions()[slot]);
+    }
+
+    /**
+     * Writes a product's values into its slot. Called with the slot's
+     * stripe locked or the structure locked exclusively.
+     */
+    private void write(int slot, Product product, int category) {
+        Columns c = columns;
+        c.ids()[slot] = product.getId();
+        c.names()[slot] = product.getName();
+        c.categories()[slot] = category;
+        c.prices()[slot] = product.getUnitPrice();
+        c.quantities()[slot] = product.getStockQuantity();
+        c.expirations()[slot] = epochDay(product.getExpirationDate());
+        c.creations()[slot] = epochDay(product.getCreationDate());
+        c.updates()[slot] = epochDay(product.getLastUpdatedDate());
+        c.versions()[slot] = product.getVersion();
+    }
+
+    private int allocate() {
+        if (freeCount > 0) {
+            return free[--freeCount];
+        }
+        if (used == columns.capacity()) {
+            columns = columns.grow(columns.capacity() * 2);
+        }
+        return used++;
+    }
+
+    private Product toProduct(Row row) {
+        Product product = new Product();
+        product.setId(row.id());
+        product.setName(row.name());
+        product.setCategory(dictionary.value(row.category()));
+        product.setUnitPrice(row.price());
+        product.setStockQuantity(row.quantity());
+        product.setExpirationDate(date(row.expiration()));
+        product.setCreationDate(date(row.creation()));
+        product.setLastUpdatedDate(date(row.update()));
+        product.setVersion(row.version());
+        product.freeze();
+        return product;
+    }
+
+    private static int epochDay(LocalDate date) {
+        return date != null ? Math.toIntExact(date.toEpochDay()) : NO_DATE;
+    }
+
+    private static LocalDate date(int epochDay) {
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+}
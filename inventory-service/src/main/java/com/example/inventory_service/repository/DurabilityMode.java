@@ -0,0 +1,13 @@
+package com.example.inventory_service.repository;
+
+/**
+ * How long a write waits for the write-ahead log before it returns.
+ */
+public enum DurabilityMode {
+    /** The write returns once its log record has been fsynced; concurrent writes share one fsync. */
+    SYNC,
+    /** The write returns once its record is queued; the log is fsynced at a fixed interval. */
+    BATCHED,
+    /** The write returns once its record is queued; fsync is left to the operating system. */
+    ASYNC
+}
@@ -0,0 +1,129 @@
+package com.example.inventory_service.repository;
+
+import com.example.inventory_service.model.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Products by ID, held as the saved Product objects in a concurrent map.
+ * <p>
+ * The store can start from a mapped {@link ProductSnapshot}: its rows are
+ * only turned into Product objects when first read, and then kept, so a
+ * freshly restored catalog costs little more than the mapping until it is
+ * used. Writes always go to the map; a deleted snapshot row is masked with
+ * a marker entry. Reads never lock; writes to one ID must be serialized by
+ * the caller.
+ */
+class HeapProductStore implements ProductStore {
+
+    private static final Product DELETED = new Product();
+
+    private final ConcurrentHashMap<Long, Product> products = new ConcurrentHashMap<>();
+    private final AtomicLong size = new AtomicLong();
+    private volatile ProductSnapshot base;
+
+    @Override
+    public void restore(ProductSnapshot snapshot) {
+        base = snapshot;
+        size.set(snapshot.rows());
+    }
+
+    @Override
+    public Product get(long id) {
+        Product product = products.get(id);
+        if (product != null) {
+            return product == DELETED ? null : product;
+        }
+        ProductSnapshot snapshot = base;
+        int row = snapshot != null ? snapshot.rowOf(id) : -1;
+        if (row < 0) {
+            return null;
+        }
+        Product hydrated = snapshot.read(row);
+        hydrated.freeze();
+        Product existing = products.putIfAbsent(id, hydrated);
+        if (existing != null) {
+            return existing == DELETED ? null : existing;
+        }
+        if (base != snapshot) {
+            // Cleared while the row was being read
+            products.remove(id, hydrated);
+            return null;
+        }
+        return hydrated;
+    }
+
+    @Override
+    public boolean contains(long id) {
+        Product product = products.get(id);
+        if (product != null) {
+            return product != DELETED;
+        }
+        ProductSnapshot snapshot = base;
+        return snapshot != null && snapshot.rowOf(id) >= 0;
+    }
+
+    @Override
+    public Product put(Product product) {
+        Product previous = get(product.getId());
+        products.put(product.getId(), product);
+        if (previous == null) {
+            size.incrementAndGet();
+        }
+        return previous;
+    }
+
+    @Override
+    public Product remove(long id) {
+        Product previous = get(id);
+        if (previous == null) {
+            return null;
+        }
+        ProductSnapshot snapshot = base;
+        if (snapshot != null && snapshot.rowOf(id) >= 0) {
+            products.put(id, DELETED);
+        } else {
+            products.remove(id);
+        }
+        size.decrementAndGet();
+        return previous;
+    }
+
+    @Override
+    public long size() {
+        return size.get();
+    }
+
+    /**
+     * Copies every stored product, hydrating the snapshot rows not read yet.
+     */
+    @Override
+    public List<Product> values() {
+        List<Product> values = new ArrayList<>((int) Math.min(Integer.MAX_VALUE - 8, size.get()));
+        ProductSnapshot snapshot = base;
+        if (snapshot != null) {
+            for (int row = 0; row < snapshot.rows(); row++) {
+                Product product = get(snapshot.id(row));
+                if (product != null) {
+                    values.add(product);
+                }
+            }
+        }
+        for (Product product : products.values()) {
+            if (product != DELETED && (snapshot == null || snapshot.rowOf(product.getId()) < 0)) {
+                values.add(product);
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public void clear() {
+        base = null;
+        products.clear();
+        size.set(0);
+    }
+}
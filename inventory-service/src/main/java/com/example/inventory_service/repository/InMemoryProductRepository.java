@@ -1,43 +1,978 @@
 package com.example.inventory_service.repository;
+import com.example.inventory_service.model.InventoryMetric;
 import com.example.inventory_service.model.Product;
+import com.example.inventory_service.exception.VersionConflictException;
 
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+/**
+ * Thread-safe in-memory product storage.
+ * Products are kept in a {@link ProductStore}, either as objects or in
+ * primitive columns. Stored products are frozen, so readers share them
+ * without copying. Reads never take the repository's locks, not even a
+ * full listing after a write, which rebuilds the shared catalog view
+ * alongside the writers; writes to the same ID are serialized through a fixed set of lock stripes so
+ * writers touching different products never block each other.
+ * Every write is also handed to a {@link ProductPersistence}, which by
+ * default keeps nothing; with a write-ahead log configured the catalog is
+ * rebuilt from disk when the repository is created. A write is logged
+ * before it is applied, and only applied once it is as durable as the log
+ * promises, so memory never gets ahead of disk. A restored snapshot is
+ * mapped rather than read: the object store only materializes its products
+ * on first use, and the indexes are built from its columns in the
+ * background while lookups by ID are already served. Applied writes are also reported to the
+ * registered {@link ProductChangeListener}s.
+ */
 @Repository
 public class InMemoryProductRepository {
 
-    private final Map<Long, Product> storage = new HashMap<>();
+    private static final int STRIPES = 64;
+    // Snapshot rows indexed per parallel task
+    private static final int INDEX_RANGE = 16_384;
+
+    /** Every stored product as of one write generation, shared by all readers until the next write. */
+    private record Catalog(long generation, List<Product> products) {}
+
+    private final ProductStore storage;
+    private final ConcurrentHashMap<String, Long> nameIndex = new ConcurrentHashMap<>();
+    private final TrigramIndex trigramIndex = new TrigramIndex();
+    private final CategoryDictionary categoryDictionary = new CategoryDictionary();
+    private final CategoryIndex categoryIndex = new CategoryIndex(categoryDictionary);
+    private final Set<Long> inStockIds = ConcurrentHashMap.newKeySet();
+    private final Set<Long> outOfStockIds = ConcurrentHashMap.newKeySet();
+    private final CategoryMetrics categoryMetrics = new CategoryMetrics(categoryDictionary);
+    private final Map<String, SortIndex<?>> sortIndexes = Map.of(
+        "id", new SortIndex<>(Product::getId, Comparator.<Long>naturalOrder()),
+        "name", new SortIndex<>(Product::getName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)),
+        "category", new SortIndex<>(Product::getCategory, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)),
+        "unitPrice", new SortIndex<>(Product::getUnitPrice, Comparator.<Double>naturalOrder()),
+        "stockQuantity", new SortIndex<>(Product::getStockQuantity, Comparator.<Integer>naturalOrder()),
+        "expirationDate", new SortIndex<>(
+            p -> p.getExpirationDate() != null ? p.getExpirationDate() : LocalDate.MAX, Comparator.<LocalDate>naturalOrder())
+    );
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    // Single writes share the read side and run in parallel; the write side
+    // stops all writers, to cut a consistent snapshot or apply a batch
+    private final ReentrantReadWriteLock globalLock = new ReentrantReadWriteLock();
+    private final ReentrantLock snapshotLock = new ReentrantLock();
     private final AtomicLong idGenerator = new AtomicLong(1);
+    // Bumped by every write; the published catalog is current while its generation matches
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicReference<Catalog> catalog = new AtomicReference<>(new Catalog(-1, List.of()));
+    // Completes once the indexes cover a restored snapshot; see awaitIndexes
+    private volatile CompletableFuture<Void> indexed = CompletableFuture.completedFuture(null);
+    private final ProductPersistence persistence;
+    private final List<ProductChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    public InMemoryProductRepository() {
+        this(ProductPersistence.none(), ProductStore.heap());
+    }
+
+    public InMemoryProductRepository(ProductPersistence persistence) {
+        this(persistence, ProductStore.heap());
+    }
+
+    @Autowired
+    public InMemoryProductRepository(ProductPersistence persistence, ProductStore storage) {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.persistence = persistence;
+        this.storage = storage;
+        storage.useCategories(categoryDictionary);
+        // Startup is single-threaded, so replayed writes skip the locks and the log
+        persistence.recover(new ProductPersistence.Replay() {
+            @Override
+            public void restore(ProductSnapshot snapshot) {
+                restoreFrom(snapshot);
+            }
+
+            @Override
+            public void save(Product product) {
+                awaitIndexes();
+                reserveIdsBelow(product.getId() + 1);
+                apply(product);
+            }
+
+            @Override
+            public void delete(long id) {
+                awaitIndexes();
+                remove(id);
+            }
 
+            @Override
+            public void clear() {
+                awaitIndexes();
+                clearAll();
+            }
+
+            @Override
+            public void reserveIdsBelow(long nextId) {
+                idGenerator.accumulateAndGet(nextId, Math::max);
+            }
+        });
+    }
+
+    /**
+     * Registers a listener for every write applied from now on.
+     * @param listener The listener; see {@link ProductChangeListener} for what it may do.
+     */
+    public void addChangeListener(ProductChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stores a product, assigning the next ID when it has none.
+     * IDs come from a single atomic counter, so concurrent saves never
+     * receive the same ID. Saving an explicit ID moves the counter past it,
+     * which keeps restored or imported products from colliding with new ones.
+     * Names are unique ignoring case: the name is claimed in the name index
+     * atomically, so two concurrent saves with the same name cannot both win.
+     * A stored instance must not be mutated afterwards; updates save a new
+     * instance under the same ID so the old name can be released. Each
+     * save gives the product the version after the stored one's, starting at 1.
+     * @param product The product to store.
+     * @return The stored product.
+     * @throws IllegalArgumentException if another product already uses the name.
+     */
     public Product save(Product product) {
-        if (product.getId() == null) {
-            product.setId(idGenerator.getAndIncrement());
+        awaitIndexes();
+        assignId(product);
+        ReentrantLock lock = lockFor(product.getId());
+        globalLock.readLock().lock();
+        lock.lock();
+        try {
+            stamp(product);
+            applyLogged(product);
+        } finally {
+            lock.unlock();
+            globalLock.readLock().unlock();
         }
-        storage.put(product.getId(), product);
         return product;
     }
 
+    /**
+     * Replaces a product with a new version computed from the stored one.
+     * The product's stripe lock is held from the read to the write, so
+     * concurrent read-modify-write updates of one product are applied one
+     * after the other and none is lost, while writes to other products go
+     * on in parallel. The indexes and metrics move with the new version.
+     * @param id The ID of the product to change.
+     * @param change Builds a new instance from the stored one, which is
+     *               frozen; it may throw to reject the update.
+     * @return The stored new version.
+     * @throws NoSuchElementException if there is no product with the ID.
+     * @throws IllegalArgumentException if the new name is taken by another product.
+     */
+    public Product update(Long id, UnaryOperator<Product> change) {
+        return update(id, null, change);
+    }
+
+    /**
+     * Same as {@link #update(Long, UnaryOperator)}, but only if the stored
+     * product is still at the expected version: a compare-and-swap on the
+     * version, so a writer working from a stale read fails instead of
+     * silently overwriting a newer write.
+     * @param expectedVersion The version the caller read, or null to replace any version.
+     * @throws VersionConflictException if the stored product has another version.
+     */
+    public Product update(Long id, Long expectedVersion, UnaryOperator<Product> change) {
+        awaitIndexes();
+        Product updated;
+        ReentrantLock lock = lockFor(id);
+        globalLock.readLock().lock();
+        lock.lock();
+        try {
+            Product existing = storage.get(id);
+            if (existing == null) {
+                throw new NoSuchElementException("Product with ID " + id + " not found.");
+            }
+            if (expectedVersion != null && existing.getVersion() != expectedVersion) {
+                throw new VersionConflictException("Product with ID " + id + " is at version "
+                    + existing.getVersion() + ", not " + expectedVersion + ".");
+            }
+            updated = change.apply(existing);
+            updated.setId(id);
+            updated.setVersion(existing.getVersion() + 1);
+            applyLogged(updated);
+        } finally {
+            lock.unlock();
+            globalLock.readLock().unlock();
+        }
+        return updated;
+    }
+
     public Product findById(Long id) {
         return storage.get(id);
     }
 
+    /**
+     * Returns every stored product as an immutable view, shared by every
+     * caller until the next write: repeated listings of an unchanged catalog
+     * cost nothing. After a write the view is rebuilt without locking, so
+     * writers are never held up by a listing. A rebuild that no write
+     * overlapped is published for the callers after it; one that a write
+     * overlapped is only returned, weakly consistent like any other read.
+     * @return List of all products.
+     */
     public List<Product> findAll() {
-        return new ArrayList<>(storage.values());
+        Catalog published = catalog.get();
+        long current = generation.get();
+        if (published.generation() == current) {
+            return published.products();
+        }
+        List<Product> products = Collections.unmodifiableList(storage.values());
+        if (generation.get() == current) {
+            publish(new Catalog(current, products));
+        }
+        return products;
     }
 
     public void deleteById(Long id) {
-        storage.remove(id);
+        awaitIndexes();
+        ReentrantLock lock = lockFor(id);
+        globalLock.readLock().lock();
+        lock.lock();
+        try {
+            if (storage.contains(id)) {
+                awaitDurable(persistence.logDelete(id));
+                remove(id);
+            }
+        } finally {
+            lock.unlock();
+            globalLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes available inside {@link #writeBatch}. They behave like the
+     * repository's own save and delete, except that they do not wait for
+     * durability one by one.
+     */
+    public interface WriteBatch {
+        Product findById(Long id);
+
+        /**
+         * @throws IllegalArgumentException if another product already uses the name.
+         */
+        Product save(Product product);
+
+        /**
+         * @return true if the product existed.
+         */
+        boolean deleteById(Long id);
+    }
+
+    /**
+     * Applies many writes in one exclusive section: other writers are held
+     * off once for the whole batch instead of taking a lock per item, and
+     * its records are appended to the log as one unit, so they are
+     * group-committed instead of each waiting for its own sync.
+     * Readers are never blocked. A failing write does not undo the writes
+     * before it; the caller decides per item. Items are staged privately
+     * as they come, together with the names they claim and give up, so
+     * later items see earlier ones while readers see none of them. Once
+     * the batch is durable the staged writes are applied in order and the
+     * listeners told; if it cannot be logged, nothing has changed.
+     * @param work Receives the batch and performs its writes.
+     */
+    public void writeBatch(Consumer<WriteBatch> work) {
+        awaitIndexes();
+        List<ProductPersistence.Record> records = new ArrayList<>();
+        List<Change> staged = new ArrayList<>();
+        // Latest staged state per ID, null once deleted
+        Map<Long, Product> products = new HashMap<>();
+        // Owner per name as of the staged writes, null once given up
+        Map<String, Long> names = new HashMap<>();
+        globalLock.writeLock().lock();
+        try {
+            work.accept(new WriteBatch() {
+                @Override
+                public Product findById(Long id) {
+                    return products.containsKey(id) ? products.get(id) : storage.get(id);
+                }
+
+                @Override
+                public Product save(Product product) {
+                    assignId(product);
+                    Long id = product.getId();
+                    Product previous = findById(id);
+                    product.setVersion(previous != null ? previous.getVersion() + 1 : 1);
+                    shareCategory(product);
+                    String name = normalizeName(product.getName());
+                    Long owner = name != null ? ownerOf(name) : null;
+                    if (owner != null && !owner.equals(id)) {
+                        throw new IllegalArgumentException("Product with the same name already exists.");
+                    }
+                    product.freeze();
+                    records.add(persistence.encodeSave(product));
+                    giveUpName(previous, name);
+                    if (name != null) {
+                        names.put(name, id);
+                    }
+                    products.put(id, product);
+                    staged.add(new Change(previous, product));
+                    return product;
+                }
+
+                @Override
+                public boolean deleteById(Long id) {
+                    Product previous = findById(id);
+                    if (previous == null) {
+                        return false;
+                    }
+                    records.add(persistence.encodeDelete(id));
+                    giveUpName(previous, null);
+                    products.put(id, null);
+                    staged.add(new Change(previous, null));
+                    return true;
+                }
+
+                private Long ownerOf(String name) {
+                    return names.containsKey(name) ? names.get(name) : nameIndex.get(name);
+                }
+
+                private void giveUpName(Product previous, String keep) {
+                    String name = previous != null ? normalizeName(previous.getName()) : null;
+                    if (name != null && !name.equals(keep) && previous.getId().equals(ownerOf(name))) {
+                        names.put(name, null);
+                    }
+                }
+            });
+            awaitDurable(persistence.append(records));
+            // Replays the staged order, so every name claimed here is free by then
+            for (Change change : staged) {
+                if (change.current() != null) {
+                    claimName(change.current());
+                    store(change.current());
+                } else {
+                    unstore(change.previous().getId());
+                }
+            }
+            for (Change change : staged) {
+                notifyChanged(change.previous(), change.current());
+            }
+        } finally {
+            globalLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Inserts new products in one exclusive section, for bulk loads. Each
+     * product gets the next ID whatever it carried, and version 1. Names
+     * are claimed and products stored one by one; the indexes are then
+     * updated once for the whole batch, each index by its own task in
+     * parallel, and category totals are summed over the batch and added
+     * once per category. The records are appended as one unit and waited
+     * for before anything is stored; if they cannot be logged, the claimed
+     * names are released and nothing is inserted.
+     * @param products The products to insert.
+     * @return The inserted products, in input order, with null in place of
+     *         each product whose name was already taken.
+     */
+    public List<Product> insertAll(List<Product> products) {
+        awaitIndexes();
+        List<Product> inserted = new ArrayList<>(products.size());
+        List<Product> added = new ArrayList<>(products.size());
+        List<ProductPersistence.Record> records = new ArrayList<>(products.size());
+        globalLock.writeLock().lock();
+        try {
+            try {
+                for (Product product : products) {
+                    product.setId(idGenerator.getAndIncrement());
+                    product.setVersion(1);
+                    shareCategory(product);
+                    if (!claimName(product)) {
+                        inserted.add(null);
+                        continue;
+                    }
+                    product.freeze();
+                    added.add(product);
+                    records.add(persistence.encodeSave(product));
+                    inserted.add(product);
+                }
+                awaitDurable(persistence.append(records));
+            } catch (RuntimeException e) {
+                added.forEach(this::releaseName);
+                throw e;
+            }
+            added.forEach(storage::put);
+            indexInserted(added);
+            generation.incrementAndGet();
+            for (Product product : added) {
+                notifyChanged(null, product);
+            }
+        } finally {
+            globalLock.writeLock().unlock();
+        }
+        return inserted;
     }
 
     public void clear() {
-        storage.clear();
+        awaitIndexes();
+        globalLock.writeLock().lock();
+        try {
+            awaitDurable(persistence.logClear());
+            clearAll();
+        } finally {
+            globalLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes a snapshot through the configured persistence so that recovery
+     * only has to replay the log written after it. Writers are paused only
+     * while the log segment is switched and the product references are
+     * copied; the snapshot itself is written while they run.
+     */
+    public void snapshot() {
+        snapshotLock.lock();
+        try {
+            long segment;
+            long nextId;
+            List<Product> products;
+            globalLock.writeLock().lock();
+            try {
+                segment = persistence.rotate();
+                nextId = idGenerator.get();
+                products = publishCatalog();
+            } finally {
+                globalLock.writeLock().unlock();
+            }
+            persistence.writeSnapshot(segment, nextId, products);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Snapshots and closes the persistence on shutdown, so the next start
+     * does not have to replay the whole log.
+     */
+    @PreDestroy
+    public void close() {
+        snapshot();
+        persistence.close();
     }
 
     public boolean existsById(Long id) {
-        return storage.containsKey(id);
+        return storage.contains(id);
+    }
+
+    public long count() {
+        return storage.size();
+    }
+
+    /**
+     * Returns the write generation, bumped after every applied write once
+     * its indexes are updated. Anything computed from reads that started
+     * after this was read is at least as new as this generation.
+     * @return The current generation.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Returns the running totals of in-stock products per category. They are
+     * maintained on every write, so this costs one entry per category.
+     * @return One metric per category with products in stock.
+     */
+    public List<InventoryMetric> findCategoryMetrics() {
+        awaitIndexes();
+        return categoryMetrics.snapshot();
+    }
+
+    /**
+     * Checks whether a field has a sort index.
+     * @param field The field name, as used by the paginated endpoint.
+     * @return true if {@link #streamSortedBy} accepts the field.
+     */
+    public boolean isSortable(String field) {
+        return sortIndexes.containsKey(field);
+    }
+
+    /**
+     * Streams products in the order of a sort index, without copying or
+     * sorting the catalog. Products with equal keys come in ascending ID
+     * order. The stream is lazy, so limiting it only reads that many rows.
+     * @param field A sortable field: id, name, category, unitPrice, stockQuantity or expirationDate.
+     * @param ascending Whether the key is walked in ascending order.
+     * @return The products in index order.
+     */
+    public Stream<Product> streamSortedBy(String field, boolean ascending) {
+        awaitIndexes();
+        return toProducts(sortIndex(field).ids(ascending));
+    }
+
+    /**
+     * Streams products in the order of a sort index, starting at the
+     * position of a probe product instead of at the beginning. Seeking
+     * costs a single index lookup, however deep the position is.
+     * @param field A sortable field.
+     * @param ascending Whether the key is walked in ascending order.
+     * @param probe A product carrying the sort key and ID to start from.
+     * @param inclusive Whether a product exactly at the probe position is included.
+     * @return The products from that position on, in index order.
+     */
+    public Stream<Product> streamSortedFrom(String field, boolean ascending, Product probe, boolean inclusive) {
+        awaitIndexes();
+        return toProducts(sortIndex(field).idsFrom(ascending, probe, inclusive));
+    }
+
+    private SortIndex<?> sortIndex(String field) {
+        SortIndex<?> index = sortIndexes.get(field);
+        if (index == null) {
+            throw new IllegalArgumentException("Unsupported sort field: " + field);
+        }
+        return index;
+    }
+
+    private Stream<Product> toProducts(Iterator<Long> ids) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(ids, Spliterator.ORDERED), false)
+            .map(storage::get)
+            .filter(Objects::nonNull);
+    }
+
+    /**
+     * Checks whether a product with the given name exists, ignoring case.
+     * @param name The product name.
+     * @return true if the name is already taken.
+     */
+    public boolean existsByName(String name) {
+        awaitIndexes();
+        String key = normalizeName(name);
+        return key != null && nameIndex.containsKey(key);
+    }
+
+    /**
+     * Finds the IDs of products whose name contains the given fragment,
+     * ignoring case. Fragments of three or more characters are answered from
+     * the trigram index and only its candidates are checked against the
+     * stored name; shorter fragments scan the distinct names in the name
+     * index, which still avoids touching the products themselves.
+     * A null or empty fragment is no filter and matches every product.
+     * @param fragment The name fragment to match.
+     * @return A new set with the matching IDs.
+     */
+    public Set<Long> findIdsByNameContaining(String fragment) {
+        awaitIndexes();
+        Set<Long> result = new HashSet<>();
+        if (fragment == null || fragment.isEmpty()) {
+            sortIndex("id").ids(true).forEachRemaining(result::add);
+            return result;
+        }
+        String query = normalizeName(fragment);
+        if (query.length() < TrigramIndex.GRAM) {
+            nameIndex.forEach((name, id) -> {
+                if (name.contains(query)) {
+                    result.add(id);
+                }
+            });
+            return result;
+        }
+        for (Long id : trigramIndex.candidates(query)) {
+            String name = storage.name(id);
+            if (name != null && normalizeName(name).contains(query)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the IDs of products whose category contains any of the given
+     * fragments, ignoring case and surrounding whitespace.
+     * @param categories The category fragments to match.
+     * @return A new set with the matching IDs.
+     */
+    public Set<Long> findIdsByCategories(Collection<String> categories) {
+        awaitIndexes();
+        return categoryIndex.idsMatching(categories);
+    }
+
+    /**
+     * Streams the products matching the given filters in ID order, testing
+     * each product as it is read. Unlike the findIdsBy methods it never
+     * collects the matches, so memory use does not grow with the catalog;
+     * the walk is weakly consistent, like the sort index it reads.
+     * @param name A name fragment, matched ignoring case (optional).
+     * @param categories Category fragments, any of which may match (optional).
+     * @param inStock true for products with stock, false for products without (optional).
+     * @return The matching products.
+     */
+    public Stream<Product> streamMatching(String name, Collection<String> categories, Boolean inStock) {
+        awaitIndexes();
+        String query = normalizeName(name);
+        BitSet codes = categories != null && !categories.isEmpty() ? categoryIndex.codesMatching(categories) : null;
+        return streamSortedBy("id", true).filter(product ->
+            (query == null || (product.getName() != null && normalizeName(product.getName()).contains(query)))
+                && (codes == null || inCategories(product, codes))
+                && (inStock == null || inStock == product.getStockQuantity() > 0));
+    }
+
+    private boolean inCategories(Product product, BitSet codes) {
+        int code = categoryDictionary.codeOf(product.getCategory());
+        return code != CategoryDictionary.NONE && codes.get(code);
+    }
+
+    /**
+     * Returns a live, read-only view of the IDs in the requested stock state.
+     * @param inStock true for products with stock, false for products without.
+     * @return The matching IDs.
+     */
+    public Set<Long> findIdsByStock(boolean inStock) {
+        awaitIndexes();
+        return Collections.unmodifiableSet(inStock ? inStockIds : outOfStockIds);
+    }
+
+    private void assignId(Product product) {
+        if (product.getId() == null) {
+            product.setId(idGenerator.getAndIncrement());
+        } else {
+            long next = product.getId() + 1;
+            idGenerator.accumulateAndGet(next, Math::max);
+        }
+    }
+
+    /**
+     * Gives a product the version after the stored one's, or 1 if it is
+     * new. Called with the product's stripe lock or the exclusive lock held.
+     */
+    private void stamp(Product product) {
+        Product stored = storage.get(product.getId());
+        product.setVersion(stored != null ? stored.getVersion() + 1 : 1);
+    }
+
+    /** A write staged by a batch, as the product before and after it. */
+    private record Change(Product previous, Product current) {}
+
+    /**
+     * Stores a product and updates every index, without logging it. Used
+     * during single-threaded recovery.
+     */
+    private void apply(Product product) {
+        prepare(product);
+        notifyChanged(store(product), product);
+    }
+
+    /**
+     * Logs a product, waits until the record is durable and only then
+     * stores it and tells the listeners. If it cannot be logged, the name
+     * it claimed is released and nothing else has changed. Called with
+     * the product's stripe lock held.
+     */
+    private void applyLogged(Product product) {
+        prepare(product);
+        try {
+            awaitDurable(persistence.logSave(product));
+        } catch (RuntimeException e) {
+            releaseName(product);
+            throw e;
+        }
+        notifyChanged(store(product), product);
+    }
+
+    /**
+     * Readies a product to be stored: shares its category String, claims
+     * its name and freezes it.
+     * @throws IllegalArgumentException if another product already uses the name.
+     */
+    private void prepare(Product product) {
+        shareCategory(product);
+        if (!claimName(product)) {
+            throw new IllegalArgumentException("Product with the same name already exists.");
+        }
+        product.freeze();
+    }
+
+    /** Shares one String per category instead of one per product. */
+    private void shareCategory(Product product) {
+        product.setCategory(categoryDictionary.value(categoryDictionary.encode(product.getCategory())));
+    }
+
+    /**
+     * Stores a prepared product and moves it in every index.
+     * @return The product it replaced, or null.
+     */
+    private Product store(Product product) {
+        Product previous = storage.put(product);
+        updateIndexes(previous, product);
+        generation.incrementAndGet();
+        return previous;
+    }
+
+    /**
+     * Gives up the name a prepared product claimed, unless the stored
+     * product with its ID already owned it.
+     */
+    private void releaseName(Product product) {
+        String name = normalizeName(product.getName());
+        if (name != null && !name.equals(normalizeName(storage.name(product.getId())))) {
+            nameIndex.remove(name, product.getId());
+        }
+    }
+
+    /**
+     * Claims the product's name in the name index.
+     * @return false if another product already owns the name.
+     */
+    private boolean claimName(Product product) {
+        String name = normalizeName(product.getName());
+        if (name == null) {
+            return true;
+        }
+        Long owner = nameIndex.putIfAbsent(name, product.getId());
+        return owner == null || owner.equals(product.getId());
+    }
+
+    /**
+     * Adds newly stored products to every index. The indexes are independent
+     * concurrent structures, so each one takes the whole batch on its own
+     * task. Called with the exclusive lock held.
+     */
+    private void indexInserted(List<Product> added) {
+        List<Runnable> updates = new ArrayList<>();
+        updates.add(() -> {
+            for (Product product : added) {
+                String name = normalizeName(product.getName());
+                if (name != null) {
+                    trigramIndex.add(name, product.getId());
+                }
+            }
+        });
+        updates.add(() -> {
+            for (Product product : added) {
+                categoryIndex.add(categoryDictionary.codeOf(product.getCategory()), product.getId());
+                (product.getStockQuantity() > 0 ? inStockIds : outOfStockIds).add(product.getId());
+            }
+        });
+        for (SortIndex<?> index : sortIndexes.values()) {
+            updates.add(() -> added.forEach(product -> index.update(null, product)));
+        }
+        updates.add(() -> categoryMetrics.addAll(added));
+        updates.parallelStream().forEach(Runnable::run);
+    }
+
+    /**
+     * Removes a product and its index entries.
+     * @return true if the product existed.
+     */
+    private boolean remove(Long id) {
+        Product removed = unstore(id);
+        if (removed == null) {
+            return false;
+        }
+        notifyChanged(removed, null);
+        return true;
+    }
+
+    /**
+     * Removes a product and its index entries without telling the listeners.
+     * @return The removed product, or null if there was none.
+     */
+    private Product unstore(Long id) {
+        Product removed = storage.remove(id);
+        if (removed != null) {
+            updateIndexes(removed, null);
+            generation.incrementAndGet();
+        }
+        return removed;
+    }
+
+    /**
+     * Starts from a snapshot without reading it first: the store hydrates
+     * rows when they are first read, and the indexes are filled from the
+     * mapped columns on a background thread, so startup only maps the file.
+     * Lookups by ID and the full catalog are served at once; anything that
+     * reads or writes the indexes waits for them in {@link #awaitIndexes}.
+     */
+    private void restoreFrom(ProductSnapshot snapshot) {
+        storage.restore(snapshot);
+        generation.incrementAndGet();
+        indexed = CompletableFuture.runAsync(() -> indexSnapshot(snapshot), task -> {
+            Thread builder = new Thread(task, "product-index-builder");
+            builder.setDaemon(true);
+            builder.start();
+        });
+    }
+
+    /**
+     * Adds every snapshot row to the indexes. Rows are split into ranges
+     * indexed in parallel, each decoding only the indexed columns into one
+     * reused instance; the indexes already take concurrent writes to
+     * different products.
+     */
+    private void indexSnapshot(ProductSnapshot snapshot) {
+        int rows = snapshot.rows();
+        IntStream.range(0, (rows + INDEX_RANGE - 1) / INDEX_RANGE).parallel().forEach(range -> {
+            Product row = new Product();
+            int end = Math.min(rows, (range + 1) * INDEX_RANGE);
+            for (int i = range * INDEX_RANGE; i < end; i++) {
+                snapshot.readIndexed(i, row);
+                String name = normalizeName(row.getName());
+                if (name != null) {
+                    nameIndex.put(name, row.getId());
+                }
+                updateIndexes(null, row);
+            }
+        });
+    }
+
+    /**
+     * @return A future completing once the indexes cover a restored snapshot,
+     *         or exceptionally if they could not be built, for callers that
+     *         must not block until then.
+     */
+    public CompletableFuture<Void> indexesReady() {
+        return indexed;
+    }
+
+    /**
+     * Waits until the indexes cover a restored snapshot; once they do, this
+     * is a single volatile read.
+     * @throws IllegalStateException if the snapshot could not be indexed,
+     *         e.g. because one of its sections is corrupt.
+     */
+    private void awaitIndexes() {
+        try {
+            indexed.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Products could not be indexed from the snapshot", e.getCause());
+        }
+    }
+
+    private void clearAll() {
+        storage.clear();
+        nameIndex.clear();
+        trigramIndex.clear();
+        categoryIndex.clear();
+        inStockIds.clear();
+        outOfStockIds.clear();
+        sortIndexes.values().forEach(SortIndex::clear);
+        categoryMetrics.clear();
+        generation.incrementAndGet();
+        listeners.forEach(ProductChangeListener::reset);
+    }
+
+    private void notifyChanged(Product previous, Product current) {
+        for (ProductChangeListener listener : listeners) {
+            listener.changed(previous, current);
+        }
+    }
+
+    /**
+     * Rebuilds the shared catalog view if a write happened since it was
+     * published. Called with the exclusive lock held, so no write is in
+     * flight while the products are collected.
+     */
+    private List<Product> publishCatalog() {
+        Catalog published = catalog.get();
+        long current = generation.get();
+        if (published.generation() != current) {
+            published = new Catalog(current, Collections.unmodifiableList(storage.values()));
+            publish(published);
+        }
+        return published.products();
+    }
+
+    /**
+     * Replaces the shared catalog view unless a newer one was published
+     * meanwhile, so a slow rebuild never overwrites a later one.
+     */
+    private void publish(Catalog next) {
+        Catalog current = catalog.get();
+        while (current.generation() < next.generation() && !catalog.compareAndSet(current, next)) {
+            current = catalog.get();
+        }
+    }
+
+    private static void awaitDurable(CompletableFuture<Void> logged) {
+        try {
+            logged.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw new UncheckedIOException("Write could not be made durable", io);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Moves a product between index entries. Called with the product's
+     * stripe lock held, after the new name (if any) has been claimed;
+     * either side may be null for inserts and deletes.
+     */
+    private void updateIndexes(Product previous, Product current) {
+        Long id = previous != null ? previous.getId() : current.getId();
+
+        String previousName = previous != null ? normalizeName(previous.getName()) : null;
+        String currentName = current != null ? normalizeName(current.getName()) : null;
+        if (!Objects.equals(previousName, currentName)) {
+            if (previousName != null) {
+                nameIndex.remove(previousName, id);
+                trigramIndex.remove(previousName, id);
+            }
+            if (currentName != null) {
+                trigramIndex.add(currentName, id);
+            }
+        }
+
+        int previousCategory = previous != null ? categoryDictionary.codeOf(previous.getCategory()) : CategoryDictionary.NONE;
+        int currentCategory = current != null ? categoryDictionary.encode(current.getCategory()) : CategoryDictionary.NONE;
+        if (previousCategory != currentCategory) {
+            categoryIndex.remove(previousCategory, id);
+            categoryIndex.add(currentCategory, id);
+        }
+
+        if (current == null) {
+            inStockIds.remove(id);
+            outOfStockIds.remove(id);
+        } else if (current.getStockQuantity() > 0) {
+            inStockIds.add(id);
+            outOfStockIds.remove(id);
+        } else {
+            outOfStockIds.add(id);
+            inStockIds.remove(id);
+        }
+
+        for (SortIndex<?> index : sortIndexes.values()) {
+            index.update(previous, current);
+        }
+        categoryMetrics.update(previous, previousCategory, current, currentCategory);
+    }
+
+    /**
+     * Picks the lock stripe guarding the given ID.
+     * @param id The product ID.
+     * @return The lock shared by every ID hashing to the same stripe.
+     */
+    private ReentrantLock lockFor(Long id) {
+        return locks[Math.floorMod(Long.hashCode(id), STRIPES)];
+    }
+
+    private static String normalizeName(String name) {
+        return name == null ? null : name.toLowerCase(Locale.ROOT);
     }
 
 }
@@ -0,0 +1,128 @@
+package com.example.inventory_service.repository;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from long keys to int values, without boxing.
+ * Linear probing with backward-shift deletion, so no tombstones build up.
+ * Not thread-safe: writes must be exclusive. A read racing a write may
+ * return a wrong answer but always terminates and never throws, which is
+ * what optimistic readers need before they validate.
+ */
+final class LongIntMap {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    /** Keys and values are swapped together, so a reader never pairs mismatched arrays. */
+    private record Table(long[] keys, int[] values) {}
+
+    private Table table = newTable(16);
+    private int size;
+
+    /**
+     * @return The value, or -1 if the key is absent.
+     */
+    int get(long key) {
+        Table t = table;
+        long[] keys = t.keys();
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        for (int probes = 0; probes < keys.length; probes++) {
+            long k = keys[i];
+            if (k == key) {
+                return t.values()[i];
+            }
+            if (k == EMPTY) {
+                return -1;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    void put(long key, int value) {
+        if ((size + 1) * 2 > table.keys().length) {
+            resize(table.keys().length * 2);
+        }
+        long[] keys = table.keys();
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != EMPTY && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == EMPTY) {
+            size++;
+        }
+        table.values()[i] = value;
+        keys[i] = key;
+    }
+
+    void remove(long key) {
+        long[] keys = table.keys();
+        int[] values = table.values();
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != key) {
+            if (keys[i] == EMPTY) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        // Shift later entries of the probe run back into the hole
+        int hole = i;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (keys[j] == EMPTY) {
+                break;
+            }
+            int home = slot(keys[j], mask);
+            boolean movable = hole <= j ? (home <= hole || home > j) : (home <= hole && home > j);
+            if (movable) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        keys[hole] = EMPTY;
+        size--;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        table = newTable(16);
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        Table old = table;
+        Table resized = newTable(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < old.keys().length; i++) {
+            long key = old.keys()[i];
+            if (key != EMPTY) {
+                int j = slot(key, mask);
+                while (resized.keys()[j] != EMPTY) {
+                    j = (j + 1) & mask;
+                }
+                resized.keys()[j] = key;
+                resized.values()[j] = old.values()[i];
+            }
+        }
+        table = resized;
+    }
+
+    private static Table newTable(int capacity) {
+        long[] keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        return new Table(keys, new int[capacity]);
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
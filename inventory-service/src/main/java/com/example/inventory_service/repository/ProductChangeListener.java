@@ -0,0 +1,25 @@
+package com.example.inventory_service.repository;
+
+import com.example.inventory_service.model.Product;
+
+/**
+ * Observes every write applied by InMemoryProductRepository. Callbacks run
+ * on the writing thread once the write is durable, while it still holds
+ * the product's lock, so changes to one product arrive in the order they
+ * were applied and a write that failed to log is never reported; they
+ * must return quickly and must not throw or call back into the repository.
+ */
+public interface ProductChangeListener {
+
+    /**
+     * A product was created, replaced or deleted.
+     * @param previous The stored product before the write, or null if it was created.
+     * @param current The stored product after the write, or null if it was deleted.
+     */
+    void changed(Product previous, Product current);
+
+    /**
+     * Every product was dropped at once; changes seen before no longer apply.
+     */
+    void reset();
+}
@@ -0,0 +1,67 @@
+package com.example.inventory_service.repository;
+
+import com.example.inventory_service.model.Product;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * Compact binary encoding of a product for write-ahead log records.
+ * Dates are stored as epoch days, with a sentinel for null. The version
+ * comes last, so records written before products had one still decode.
+ */
+final class ProductCodec {
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private ProductCodec() {
+    }
+
+    static void write(DataOutput out, Product product) throws IOException {
+        out.writeLong(product.getId());
+        writeString(out, product.getName());
+        writeString(out, product.getCategory());
+        out.writeDouble(product.getUnitPrice());
+        out.writeInt(product.getStockQuantity());
+        writeDate(out, product.getExpirationDate());
+        writeDate(out, product.getCreationDate());
+        writeDate(out, product.getLastUpdatedDate());
+        out.writeLong(product.getVersion());
+    }
+
+    static Product read(DataInput in) throws IOException {
+        Product product = new Product();
+        product.setId(in.readLong());
+        product.setName(readString(in));
+        product.setCategory(readString(in));
+        product.setUnitPrice(in.readDouble());
+        product.setStockQuantity(in.readInt());
+        product.setExpirationDate(readDate(in));
+        product.setCreationDate(readDate(in));
+        product.setLastUpdatedDate(readDate(in));
+        product.setVersion(in.readLong());
+        return product;
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeDate(DataOutput out, LocalDate date) throws IOException {
+        out.writeLong(date != null ? date.toEpochDay() : NO_DATE);
+    }
+
+    private static LocalDate readDate(DataInput in) throws IOException {
+        long epochDay = in.readLong();
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+}
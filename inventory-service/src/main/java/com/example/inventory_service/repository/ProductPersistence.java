@@ -0,0 +1,151 @@
+package com.example.inventory_service.repository;
+
+import com.example.inventory_service.model.Product;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Durable storage behind InMemoryProductRepository.
+ * The repository encodes and appends every write, and waits for it, while
+ * it holds the product's lock and before applying it in memory, so the log
+ * order matches the order in which writes were applied and a write that
+ * cannot be logged is never seen. Returned futures complete once the
+ * records are as durable as the configured mode promises.
+ */
+public interface ProductPersistence {
+
+    /**
+     * Receives the recovered state on startup.
+     */
+    interface Replay {
+        /**
+         * Loads a snapshot. Called at most once, before any other replayed
+         * operation; the snapshot stays readable for the repository's lifetime.
+         */
+        void restore(ProductSnapshot snapshot);
+
+        void save(Product product);
+
+        void delete(long id);
+
+        void clear();
+
+        /** Moves the ID generator so new IDs are not reused after a restart. */
+        void reserveIdsBelow(long nextId);
+    }
+
+    /**
+     * Replays the latest snapshot and the log written after it, then opens
+     * the log for appending. Called once, before any write is logged.
+     * @param replay Receives the recovered operations in order.
+     */
+    void recover(Replay replay);
+
+    /**
+     * A write encoded for the log.
+     */
+    interface Record {
+    }
+
+    /**
+     * @throws IllegalArgumentException if the product cannot be encoded.
+     */
+    Record encodeSave(Product product);
+
+    Record encodeDelete(long id);
+
+    Record encodeClear();
+
+    /**
+     * Appends records in order, as one unit: they reach the log in a
+     * single write and become durable, or fail, together.
+     * @throws IllegalStateException if the log is not open for writing.
+     */
+    CompletableFuture<Void> append(List<Record> records);
+
+    default CompletableFuture<Void> logSave(Product product) {
+        return append(List.of(encodeSave(product)));
+    }
+
+    default CompletableFuture<Void> logDelete(long id) {
+        return append(List.of(encodeDelete(id)));
+    }
+
+    default CompletableFuture<Void> logClear() {
+        return append(List.of(encodeClear()));
+    }
+
+    /**
+     * Starts a new log segment. Must be called while no write is in
+     * progress; records logged afterwards go to the new segment.
+     * @return The new segment's number.
+     */
+    long rotate();
+
+    /**
+     * Writes a snapshot of the state as it was when the given segment
+     * started, and discards the snapshots and segments it replaces.
+     * @param segment The segment returned by {@link #rotate()} for this state.
+     * @param nextId The next ID the repository would assign.
+     * @param products Every stored product.
+     */
+    void writeSnapshot(long segment, long nextId, Collection<Product> products);
+
+    /** Flushes pending records and releases the log. */
+    void close();
+
+    /**
+     * Persistence that keeps nothing, for a purely in-memory repository.
+     */
+    static ProductPersistence none() {
+        return None.INSTANCE;
+    }
+
+    final class None implements ProductPersistence {
+        private static final None INSTANCE = new None();
+        private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+        private static final Record NOTHING = new Record() { };
+
+        private None() {
+        }
+
+        @Override
+        public void recover(Replay replay) {
+        }
+
+        @Override
+        public Record encodeSave(Product product) {
+            return NOTHING;
+        }
+
+        @Override
+        public Record encodeDelete(long id) {
+            return NOTHING;
+        }
+
+        @Override
+        public Record encodeClear() {
+            return NOTHING;
+        }
+
+        @Override
+        public CompletableFuture<Void> append(List<Record> records) {
+            return DONE;
+        }
+
+        @Override
+        public long rotate() {
+            return 0;
+        }
+
+        @Override
+        public void writeSnapshot(long segment, long nextId, Collection<Product> products) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package com.example.inventory_service.repository;
+
+import com.example.inventory_service.model.Product;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Columnar snapshot file, read through a memory mapping.
+ * <p>
+ * Layout, big-endian:
+ * <pre>
+ * header   magic, format version, nextId, rows, strings
+ * columns  id long[rows] (ascending), unitPrice double[rows],
+ *          stockQuantity, expirationDate, creationDate, lastUpdatedDate,
+ *          name, category int[rows], version long[rows]
+ * strings  offset int[strings + 1], UTF-8 bytes
+ * trailer  CRC32 of each section: the header, every column and the
+ *          strings, then a CRC32 of those checksums
+ * </pre>
+ * Opening a snapshot only checks the header and the trailer; each other
+ * section is checked the first time a value is read from it, so a large
+ * file is not read end to end before the service can start.
+ * Dates are epoch days and strings are indexes into a table holding each
+ * distinct value once, so a category shared by many products is stored
+ * and decoded a single time. Opening a snapshot only maps and checks the
+ * file; rows are decoded when they are read, which lets the repository
+ * build its indexes without materializing a Product per row.
+ */
+public final class ProductSnapshot {
+
+    private static final int MAGIC = 0x494E5653; // "INVS"
+    private static final int VERSION = 4;
+    private static final int HEADER = 24;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final int NO_STRING = -1;
+
+    // Sections, in file order, each with its own checksum
+    private static final int HEADER_SECTION = 0;
+    private static final int IDS = 1;
+    private static final int PRICES = 2;
+    private static final int QUANTITIES = 3;
+    private static final int EXPIRATIONS = 4;
+    private static final int CREATIONS = 5;
+    private static final int UPDATES = 6;
+    private static final int NAMES = 7;
+    private static final int CATEGORIES = 8;
+    private static final int VERSIONS = 9;
+    private static final int STRINGS = 10;
+    private static final int SECTIONS = 11;
+    private static final int TRAILER = 8 * (SECTIONS + 1);
+
+    private final ByteBuffer buffer;
+    private final long nextId;
+    private final int rows;
+    private final int priceAt;
+    private final int quantityAt;
+    private final int expirationAt;
+    private final int creationAt;
+    private final int updatedAt;
+    private final int nameAt;
+    private final int categoryAt;
+    private final int versionAt;
+    private final int stringOffsetsAt;
+    private final int stringBytesAt;
+    private final int stringsEnd;
+    private final String[] strings;
+    private final Path path;
+    // Bit per section whose checksum has been verified
+    private volatile int verified;
+
+    private ProductSnapshot(ByteBuffer buffer, Path path) throws IOException {
+        this.buffer = buffer;
+        this.nextId = buffer.getLong(8);
+        this.rows = buffer.getInt(16);
+        int stringCount = buffer.getInt(20);
+        if (rows < 0 || stringCount < 0) {
+            throw new IOException("Corrupt snapshot header");
+        }
+        long priceAt = HEADER + 8L * rows;
+        long quantityAt = priceAt + 8L * rows;
+        long versionAt = quantityAt + 4L * 6 * rows;
+        long stringOffsetsAt = versionAt + 8L * rows;
+        long stringBytesAt = stringOffsetsAt + 4L * (stringCount + 1);
+        if (stringBytesAt > buffer.capacity() - TRAILER) {
+            throw new IOException("Truncated snapshot");
+        }
+        this.priceAt = (int) priceAt;
+        this.quantityAt = (int) quantityAt;
+        this.expirationAt = this.quantityAt + 4 * rows;
+        this.creationAt = expirationAt + 4 * rows;
+        this.updatedAt = creationAt + 4 * rows;
+        this.nameAt = updatedAt + 4 * rows;
+        this.categoryAt = nameAt + 4 * rows;
+        this.versionAt = (int) versionAt;
+        this.stringOffsetsAt = (int) stringOffsetsAt;
+        this.stringBytesAt = (int) stringBytesAt;
+        this.stringsEnd = buffer.capacity() - TRAILER;
+        if (this.stringBytesAt + (long) buffer.getInt(this.stringOffsetsAt + 4 * stringCount) != stringsEnd) {
+            throw new IOException("Truncated snapshot");
+        }
+        this.strings = new String[stringCount];
+        this.path = path;
+        this.verified = 1 << HEADER_SECTION;
+    }
+
+    /**
+     * Maps a snapshot file and verifies its header and trailer. The other
+     * sections are verified as they are first read.
+     * @param path The snapshot file.
+     * @return The opened snapshot; the mapping stays valid after the file is deleted.
+     * @throws IOException if the file is unreadable, truncated or its header is corrupt.
+     */
+    public static ProductSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot is too large to map: " + path);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.capacity() < HEADER + TRAILER) {
+                throw new IOException("Truncated snapshot: " + path);
+            }
+            if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+                throw new IOException("Not a version " + VERSION + " product snapshot: " + path);
+            }
+            int checksumsAt = mapped.capacity() - TRAILER;
+            int checksumAt = mapped.capacity() - 8;
+            if (mapped.getLong(checksumAt) != crc(mapped, checksumsAt, checksumAt)
+                    || mapped.getLong(checksumsAt) != crc(mapped, 0, HEADER)) {
+                throw new IOException("Bad snapshot checksum: " + path);
+            }
+            return new ProductSnapshot(mapped, path);
+        }
+    }
+
+    private static long crc(ByteBuffer buffer, int from, int to) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(from, to - from));
+        return crc.getValue();
+    }
+
+    /**
+     * Verifies a section the first time it is read. Racing first reads may
+     * both verify it, which is harmless.
+     * @throws UncheckedIOException if the section does not match its checksum.
+     */
+    private void check(int section) {
+        if ((verified & (1 << section)) != 0) {
+            return;
+        }
+        int from = section == IDS ? HEADER : sectionStart(section);
+        int to = section == STRINGS ? stringsEnd : sectionStart(section + 1);
+        long expected = buffer.getLong(stringsEnd + 8 * section);
+        if (crc(buffer, from, to) != expected) {
+            throw new UncheckedIOException(new IOException("Bad checksum in section " + section + " of snapshot " + path));
+        }
+        synchronized (this) {
+            verified |= 1 << section;
+        }
+    }
+
+    private int sectionStart(int section) {
+        return switch (section) {
+            case PRICES -> priceAt;
+            case QUANTITIES -> quantityAt;
+            case EXPIRATIONS -> expirationAt;
+            case CREATIONS -> creationAt;
+            case UPDATES -> updatedAt;
+            case NAMES -> nameAt;
+            case CATEGORIES -> categoryAt;
+            case VERSIONS -> versionAt;
+            case STRINGS -> stringOffsetsAt;
+            default -> throw new IllegalArgumentException("No section " + section);
+        };
+    }
+
+    /**
+     * Writes products in the snapshot format and forces the file to disk.
+     * @param path The file to write; it is replaced if it exists.
+     * @param nextId The next ID the repository would assign.
+     * @param products The products to store.
+     */
+    public static void write(Path path, long nextId, Collection<Product> products) throws IOException {
+        Product[] sorted = products.toArray(new Product[0]);
+        Arrays.sort(sorted, Comparator.comparingLong(Product::getId));
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        int[] names = new int[sorted.length];
+        int[] categories = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            names[i] = intern(sorted[i].getName(), stringIds, strings);
+            categories[i] = intern(sorted[i].getCategory(), stringIds, strings);
+        }
+
+        try (FileOutputStream file = new FileOutputStream(path.toFile())) {
+            CRC32 crc = new CRC32();
+            long[] checksums = new long[SECTIONS];
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), crc));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(nextId);
+            out.writeInt(sorted.length);
+            out.writeInt(strings.size());
+            endSection(HEADER_SECTION, crc, checksums);
+            for (Product product : sorted) {
+                out.writeLong(product.getId());
+            }
+            endSection(IDS, crc, checksums);
+            for (Product product : sorted) {
+                out.writeDouble(product.getUnitPrice());
+            }
+            endSection(PRICES, crc, checksums);
+            for (Product product : sorted) {
+                out.writeInt(product.getStockQuantity());
+            }
+            endSection(QUANTITIES, crc, checksums);
+            for (Product product : sorted) {
+                out.writeInt(epochDay(product.getExpirationDate()));
+            }
+            endSection(EXPIRATIONS, crc, checksums);
+            for (Product product : sorted) {
+                out.writeInt(epochDay(product.getCreationDate()));
+            }
+            endSection(CREATIONS, crc, checksums);
+            for (Product product : sorted) {
+                out.writeInt(epochDay(product.getLastUpdatedDate()));
+            }
+            endSection(UPDATES, crc, checksums);
+            for (int name : names) {
+                out.writeInt(name);
+            }
+            endSection(NAMES, crc, checksums);
+            for (int category : categories) {
+                out.writeInt(category);
+            }
+            endSection(CATEGORIES, crc, checksums);
+            for (Product product : sorted) {
+                out.writeLong(product.getVersion());
+            }
+            endSection(VERSIONS, crc, checksums);
+            List<byte[]> encoded = new ArrayList<>(strings.size());
+            int offset = 0;
+            out.writeInt(offset);
+            for (String value : strings) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                encoded.add(bytes);
+                offset += bytes.length;
+                out.writeInt(offset);
+            }
+            for (byte[] bytes : encoded) {
+                out.write(bytes);
+            }
+            endSection(STRINGS, crc, checksums);
+            for (long checksum : checksums) {
+                out.writeLong(checksum);
+            }
+            out.writeLong(crc.getValue());
+            out.flush();
+            file.getFD().sync();
+        }
+    }
+
+    /** Records the checksum of the section just written and starts the next one. */
+    private static void endSection(int section, CRC32 crc, long[] checksums) {
+        checksums[section] = crc.getValue();
+        crc.reset();
+    }
+
+    public long nextId() {
+        return nextId;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public long id(int row) {
+        check(IDS);
+        return buffer.getLong(HEADER + 8 * row);
+    }
+
+    /**
+     * Finds the row of a product by binary search over the ID column.
+     * @return The row, or -1 if the snapshot has no such product.
+     */
+    public int rowOf(long id) {
+        int low = 0;
+        int high = rows - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = id(mid);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Decodes a row into an existing product, so a caller that only needs
+     * the values briefly can reuse one instance for every row.
+     */
+    public Product read(int row, Product into) {
+        readIndexed(row, into);
+        check(CREATIONS);
+        check(UPDATES);
+        into.setCreationDate(date(buffer.getInt(creationAt + 4 * row)));
+        into.setLastUpdatedDate(date(buffer.getInt(updatedAt + 4 * row)));
+        check(VERSIONS);
+        into.setVersion(buffer.getLong(versionAt + 8 * row));
+        return into;
+    }
+
+    /**
+     * Decodes only the values the repository indexes: ID, name, category,
+     * unit price, stock quantity and expiration date. The other sections
+     * are neither read nor verified.
+     */
+    public Product readIndexed(int row, Product into) {
+        check(NAMES);
+        check(CATEGORIES);
+        check(PRICES);
+        check(QUANTITIES);
+        check(EXPIRATIONS);
+        into.setId(id(row));
+        into.setName(string(buffer.getInt(nameAt + 4 * row)));
+        into.setCategory(string(buffer.getInt(categoryAt + 4 * row)));
+        into.setUnitPrice(buffer.getDouble(priceAt + 8 * row));
+        into.setStockQuantity(buffer.getInt(quantityAt + 4 * row));
+        into.setExpirationDate(date(buffer.getInt(expirationAt + 4 * row)));
+        return into;
+    }
+
+    public Product read(int row) {
+        return read(row, new Product());
+    }
+
+    /**
+     * Decodes a table string once and keeps it, so every product sharing
+     * the value shares the same String instance. Racing decodes of the same
+     * entry produce equal strings, either of which may be kept.
+     */
+    private String string(int index) {
+        if (index == NO_STRING) {
+            return null;
+        }
+        String value = strings[index];
+        if (value == null) {
+            check(STRINGS);
+            int start = stringOffset(index);
+            int end = stringOffset(index + 1);
+            byte[] bytes = new byte[end - start];
+            buffer.get(stringBytesAt + start, bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+            strings[index] = value;
+        }
+        return value;
+    }
+
+    private int stringOffset(int index) {
+        return buffer.getInt(stringOffsetsAt + 4 * index);
+    }
+
+    private static int intern(String value, Map<String, Integer> ids, List<String> strings) {
+        if (value == null) {
+            return NO_STRING;
+        }
+        return ids.computeIfAbsent(value, key -> {
+            strings.add(key);
+            return strings.size() - 1;
+        });
+    }
+
+    // Products are validated with @StorableDate, so every stored date fits
+    private static int epochDay(LocalDate date) {
+        return date != null ? Math.toIntExact(date.toEpochDay()) : NO_DATE;
+    }
+
+    private static LocalDate date(int epochDay) {
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+}
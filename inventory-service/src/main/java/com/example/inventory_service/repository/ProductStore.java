@@ -0,0 +1,76 @@
+package com.example.inventory_service.repository;
+
+import com.example.inventory_service.model.Product;
+
+import java.util.List;
+
+/**
+ * Primary storage of products by ID, below the repository's indexes.
+ * Reads may run concurrently with writes; writes to the same ID must be
+ * serialized by the caller, which the repository does with its lock stripes.
+ */
+public interface ProductStore {
+
+    /**
+     * Shares the repository's category codes with the store, so both hold
+     * one code and one String per category. Called once, on an empty store,
+     * before anything else.
+     */
+    default void useCategories(CategoryDictionary dictionary) {
+    }
+
+    /**
+     * Starts from a snapshot. Must be called on an empty store.
+     */
+    void restore(ProductSnapshot snapshot);
+
+    /**
+     * @return The product, or null if there is none with this ID.
+     */
+    Product get(long id);
+
+    /**
+     * Reads only the name, for lookups that need nothing else.
+     * @return The product's name, or null if it has none or there is no such product.
+     */
+    default String name(long id) {
+        Product product = get(id);
+        return product != null ? product.getName() : null;
+    }
+
+    boolean contains(long id);
+
+    /**
+     * Stores a product, replacing any product with the same ID.
+     * @return The replaced product, or null.
+     */
+    Product put(Product product);
+
+    /**
+     * @return The removed product, or null if there was none.
+     */
+    Product remove(long id);
+
+    long size();
+
+    /**
+     * Copies every stored product. Weakly consistent with concurrent writes.
+     */
+    List<Product> values();
+
+    void clear();
+
+    /**
+     * Keeps the saved Product objects; reads return the same instances.
+     */
+    static ProductStore heap() {
+        return new HeapProductStore();
+    }
+
+    /**
+     * Keeps products in primitive columns; reads return new instances.
+     */
+    static ProductStore columnar() {
+        return new ColumnarProductStore();
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.inventory_service.repository;
+
+import com.example.inventory_service.model.Product;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+
+/**
+ * Sorted index of product IDs by one sortable field.
+ * Entries are ordered by key and then by ID, and are kept up to date on
+ * every write, so a page can be read by walking the index instead of
+ * sorting the catalog. Products that share a key are always returned in
+ * ascending ID order, whichever direction the key is walked in.
+ * @param <K> The key type.
+ */
+class SortIndex<K> {
+
+    private record Entry<K>(K key, long id) {}
+
+    private final Function<Product, K> keyExtractor;
+    private final ConcurrentSkipListSet<Entry<K>> entries;
+    private final Comparator<K> keyOrder;
+
+    SortIndex(Function<Product, K> keyExtractor, Comparator<K> keyOrder) {
+        this.keyExtractor = keyExtractor;
+        this.keyOrder = keyOrder;
+        this.entries = new ConcurrentSkipListSet<>(
+            Comparator.comparing((Entry<K> e) -> e.key(), keyOrder).thenComparingLong(Entry::id));
+    }
+
+    /**
+     * Moves a product to its new position. Either side may be null for
+     * inserts and deletes. Must be called with the product's stripe lock held.
+     */
+    void update(Product previous, Product current) {
+        K previousKey = previous != null ? keyExtractor.apply(previous) : null;
+        K currentKey = current != null ? keyExtractor.apply(current) : null;
+        if (previous != null && current != null && keyOrder.compare(previousKey, currentKey) == 0) {
+            return;
+        }
+        if (previous != null) {
+            entries.remove(new Entry<>(previousKey, previous.getId()));
+        }
+        if (current != null) {
+            entries.add(new Entry<>(currentKey, current.getId()));
+        }
+    }
+
+    /**
+     * Walks the IDs in key order. The iterator is lazy and weakly
+     * consistent, so callers can stop as soon as they have enough rows.
+     * @param ascending Direction of the key; ties are always in ascending ID order.
+     * @return An iterator over product IDs.
+     */
+    Iterator<Long> ids(boolean ascending) {
+        if (ascending) {
+            return entries.stream().map(Entry::id).iterator();
+        }
+        return new DescendingKeyIterator(Collections.emptyIterator(), lastOrNull());
+    }
+
+    /**
+     * Walks the IDs in key order, starting at the position the probe would
+     * occupy. This is what keyset pagination seeks with.
+     * @param ascending Direction of the key; ties are always in ascending ID order.
+     * @param probe A product carrying the key and ID to start from.
+     * @param inclusive Whether an entry exactly at the probe is included.
+     * @return An iterator over product IDs.
+     */
+    Iterator<Long> idsFrom(boolean ascending, Product probe, boolean inclusive) {
+        K key = keyExtractor.apply(probe);
+        Entry<K> start = new Entry<>(key, probe.getId());
+        if (ascending) {
+            return entries.tailSet(start, inclusive).stream().map(Entry::id).iterator();
+        }
+        Iterator<Entry<K>> run = entries.subSet(start, inclusive, new Entry<>(key, Long.MAX_VALUE), true).iterator();
+        return new DescendingKeyIterator(run, entries.lower(new Entry<>(key, Long.MIN_VALUE)));
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Walks the keys from the highest down, but each run of equal keys
+     * from its lowest ID up, by seeking to the start of the run.
+     */
+    private class DescendingKeyIterator implements Iterator<Long> {
+        private Iterator<Entry<K>> run;
+        private Entry<K> runHead;
+
+        DescendingKeyIterator(Iterator<Entry<K>> run, Entry<K> runHead) {
+            this.run = run;
+            this.runHead = runHead;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!run.hasNext() && runHead != null) {
+                K key = runHead.key();
+                run = entries.subSet(new Entry<>(key, Long.MIN_VALUE), true, new Entry<>(key, Long.MAX_VALUE), true).iterator();
+                runHead = entries.lower(new Entry<>(key, Long.MIN_VALUE));
+            }
+            return run.hasNext();
+        }
+
+        @Override
+        public Long next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return run.next().id();
+        }
+    }
+
+    private Entry<K> lastOrNull() {
+        try {
+            return entries.last();
+        } catch (NoSuchElementException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.inventory_service.repository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Trigram index over normalized product names.
+ * Every three-character window of a name maps to the IDs containing it,
+ * so a substring query only has to look at IDs that share all of the
+ * query's trigrams. Matches are candidates and must still be verified.
+ */
+class TrigramIndex {
+
+    static final int GRAM = 3;
+
+    private final ConcurrentHashMap<Long, Set<Long>> postings = new ConcurrentHashMap<>();
+
+    void add(String normalizedName, Long id) {
+        for (long gram : grams(normalizedName)) {
+            postings.compute(gram, (key, ids) -> {
+                if (ids == null) {
+                    ids = ConcurrentHashMap.newKeySet();
+                }
+                ids.add(id);
+                return ids;
+            });
+        }
+    }
+
+    void remove(String normalizedName, Long id) {
+        for (long gram : grams(normalizedName)) {
+            postings.computeIfPresent(gram, (key, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    /**
+     * Returns the IDs whose names contain every trigram of the query.
+     * @param normalizedQuery The query, at least {@link #GRAM} characters long.
+     * @return A new set of candidate IDs; may contain false positives.
+     */
+    Set<Long> candidates(String normalizedQuery) {
+        List<Set<Long>> lists = new ArrayList<>();
+        for (long gram : grams(normalizedQuery)) {
+            Set<Long> ids = postings.get(gram);
+            if (ids == null) {
+                return new HashSet<>();
+            }
+            lists.add(ids);
+        }
+        // Walk the rarest trigram and probe the others
+        lists.sort(Comparator.comparingInt(Set::size));
+        Set<Long> result = new HashSet<>();
+        for (Long id : lists.get(0)) {
+            boolean inAll = true;
+            for (int i = 1; i < lists.size() && inAll; i++) {
+                inAll = lists.get(i).contains(id);
+            }
+            if (inAll) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    void clear() {
+        postings.clear();
+    }
+
+    /**
+     * Packs each distinct trigram into a long (three 16-bit chars) to avoid
+     * allocating a String per window.
+     */
+    private static Set<Long> grams(String value) {
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            grams.add(((long) value.charAt(i) << 32) | ((long) value.charAt(i + 1) << 16) | value.charAt(i + 2));
+        }
+        return grams;
+    }
+}
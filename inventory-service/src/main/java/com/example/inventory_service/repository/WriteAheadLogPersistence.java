@@ -0,0 +1,433 @@
+package com.example.inventory_service.repository;
+
+import com.example.inventory_service.model.Product;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log with periodic snapshots.
+ * <p>
+ * Records are queued by the writing threads and appended by a single
+ * writer thread, which drains everything queued so far into one write and,
+ * depending on the durability mode, one fsync (group commit). The log is
+ * split into numbered segments; a snapshot numbered N holds the state as
+ * it was when segment N started, so recovery loads the newest snapshot and
+ * replays segments N and up. Snapshots use the columnar
+ * {@link ProductSnapshot} format and are mapped rather than read. Each record is framed with its length and a
+ * CRC32, so a record torn by a crash ends the replay of that segment
+ * instead of failing startup.
+ * <p>
+ * A write that fails is cut off the segment again before anything else is
+ * appended, so a partly written frame never hides the records after it.
+ * If even that fails, the log refuses every further write.
+ */
+public class WriteAheadLogPersistence implements ProductPersistence {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteAheadLogPersistence.class);
+
+    private static final byte SAVE = 1;
+    private static final byte DELETE = 2;
+    private static final byte CLEAR = 3;
+
+    private static final Pattern SEGMENT = Pattern.compile("wal-(\\d+)\\.log");
+    private static final Pattern SNAPSHOT = Pattern.compile("snapshot-(\\d+)\\.bin");
+    private static final int MAX_BATCH = 4096;
+
+    private record Entry(byte[] record, long rotateTo, CompletableFuture<Void> done) {}
+
+    private final Path directory;
+    private final DurabilityMode mode;
+    private final long syncIntervalMillis;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+
+    private Thread writer;
+    private volatile boolean running;
+    private final AtomicLong segment = new AtomicLong();
+    private FileChannel channel;
+    // Set once a failed write could not be cut off the segment
+    private volatile IOException failure;
+
+    public WriteAheadLogPersistence(Path directory, DurabilityMode mode, long syncIntervalMillis) {
+        this.directory = directory;
+        this.mode = mode;
+        this.syncIntervalMillis = syncIntervalMillis;
+    }
+
+    @Override
+    public void recover(Replay replay) {
+        try {
+            Files.createDirectories(directory);
+            long base = loadLatestSnapshot(replay);
+            long lastSegment = base;
+            for (long number : numbered(SEGMENT)) {
+                if (number >= base) {
+                    replaySegment(segmentPath(number), replay);
+                }
+                lastSegment = Math.max(lastSegment, number);
+            }
+            // Never append to a recovered segment: its tail may be torn
+            segment.set(lastSegment + 1);
+            channel = openSegment(segment.get());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not recover products from " + directory, e);
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "product-wal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public Record encodeSave(Product product) {
+        return encode(SAVE, out -> ProductCodec.write(out, product));
+    }
+
+    @Override
+    public Record encodeDelete(long id) {
+        return encode(DELETE, out -> out.writeLong(id));
+    }
+
+    @Override
+    public Record encodeClear() {
+        return encode(CLEAR, out -> { });
+    }
+
+    @Override
+    public long rotate() {
+        checkWritable();
+        long next = segment.incrementAndGet();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        queue.add(new Entry(null, next, done));
+        done.join();
+        return next;
+    }
+
+    @Override
+    public void writeSnapshot(long segment, long nextId, Collection<Product> products) {
+        Path target = snapshotPath(segment);
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try {
+            ProductSnapshot.write(temp, nextId, products);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            // The rename must be on disk before the files it replaces are deleted
+            syncDirectory();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write snapshot " + target, e);
+        }
+
+        // The new snapshot covers everything before its segment
+        try {
+            for (long number : numbered(SNAPSHOT)) {
+                if (number < segment) {
+                    Files.deleteIfExists(snapshotPath(number));
+                }
+            }
+            for (long number : numbered(SEGMENT)) {
+                if (number < segment) {
+                    Files.deleteIfExists(segmentPath(number));
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not remove files replaced by snapshot {}", target, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Could not close the write-ahead log", e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> append(List<Record> records) {
+        checkWritable();
+        if (records.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        byte[] bytes;
+        if (records.size() == 1) {
+            bytes = ((Frame) records.get(0)).bytes();
+        } else {
+            ByteArrayOutputStream joined = new ByteArrayOutputStream();
+            for (Record record : records) {
+                joined.writeBytes(((Frame) record).bytes());
+            }
+            bytes = joined.toByteArray();
+        }
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        queue.add(new Entry(bytes, 0, done));
+        // Only SYNC callers wait for the fsync; the others just need the record queued
+        return mode == DurabilityMode.SYNC ? done : CompletableFuture.completedFuture(null);
+    }
+
+    private void checkWritable() {
+        if (!running) {
+            throw new IllegalStateException("Write-ahead log is not open");
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Write-ahead log failed and accepts no more writes", failure);
+        }
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>();
+        List<CompletableFuture<Void>> written = new ArrayList<>();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 16);
+        long lastSync = System.currentTimeMillis();
+        boolean dirty = false;
+        // Length of the current segment up to the last batch that was written in full
+        long committed = 0;
+
+        while (running || !queue.isEmpty()) {
+            batch.clear();
+            try {
+                Entry first = queue.poll(Math.max(1, syncIntervalMillis), TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            if (failure != null) {
+                batch.forEach(entry -> entry.done().completeExceptionally(failure));
+                continue;
+            }
+            written.clear();
+            try {
+                for (Entry entry : batch) {
+                    if (entry.record() == null) {
+                        writeBuffer(buffer);
+                        channel.force(false);
+                        // Everything before the rotation is durable and stays in the old segment
+                        written.forEach(done -> done.complete(null));
+                        written.clear();
+                        channel.close();
+                        channel = openSegment(entry.rotateTo());
+                        committed = 0;
+                        dirty = false;
+                        entry.done().complete(null);
+                        continue;
+                    }
+                    buffer.write(entry.record());
+                    written.add(entry.done());
+                }
+                long end = committed + buffer.size();
+                if (buffer.size() > 0) {
+                    writeBuffer(buffer);
+                    dirty = true;
+                }
+
+                long now = System.currentTimeMillis();
+                boolean sync = switch (mode) {
+                    case SYNC -> dirty;
+                    case BATCHED -> dirty && now - lastSync >= syncIntervalMillis;
+                    case ASYNC -> false;
+                };
+                if (sync) {
+                    channel.force(false);
+                    lastSync = now;
+                    dirty = false;
+                }
+                committed = end;
+                written.forEach(done -> done.complete(null));
+            } catch (IOException e) {
+                log.error("Write-ahead log append failed", e);
+                buffer.reset();
+                // Cut off first, so a caller that sees the failure finds the log already settled
+                discardFailedWrite(committed, e);
+                dirty = false;
+                // Entries already completed by a rotation keep their result
+                batch.forEach(entry -> entry.done().completeExceptionally(e));
+            }
+        }
+    }
+
+    /**
+     * Truncates the segment back to its last complete batch, so a partly
+     * written frame is never followed by later records that replay would
+     * then stop short of. If that fails as well, the log is failed: the
+     * writer cannot move on to a new segment by itself without breaking
+     * the numbering snapshots rely on.
+     */
+    private void discardFailedWrite(long committed, IOException cause) {
+        try {
+            channel.truncate(committed);
+            channel.force(false);
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+            failure = cause;
+            log.error("Could not discard the failed write, the write-ahead log accepts no more writes", e);
+        }
+    }
+
+    private void writeBuffer(ByteArrayOutputStream buffer) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        buffer.reset();
+    }
+
+    private interface Body {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /** One or more framed records, appended as they are. */
+    private record Frame(byte[] bytes) implements Record {}
+
+    /**
+     * Frames a record as length, CRC32 of the payload, payload.
+     * @throws IllegalArgumentException if the record cannot be encoded,
+     *         e.g. a string longer than the format allows.
+     */
+    private static Frame encode(byte op, Body body) {
+        try {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(96);
+            DataOutputStream out = new DataOutputStream(payload);
+            out.writeByte(op);
+            body.write(out);
+            out.flush();
+            byte[] bytes = payload.toByteArray();
+
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            ByteBuffer frame = ByteBuffer.allocate(8 + bytes.length);
+            frame.putInt(bytes.length).putInt((int) crc.getValue()).put(bytes);
+            return new Frame(frame.array());
+        } catch (IOException e) {
+            // Only DataOutputStream's own limits can fail when writing to memory
+            throw new IllegalArgumentException("Write cannot be logged: " + e.getMessage(), e);
+        }
+    }
+
+    private void replaySegment(Path path, Replay replay) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            while (true) {
+                int length;
+                int checksum;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length <= 0 || length > (1 << 20)) {
+                        log.warn("Corrupt record in {}, ignoring the rest of the segment", path);
+                        return;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    return;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    log.warn("Torn record in {}, ignoring the rest of the segment", path);
+                    return;
+                }
+
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                switch (record.readByte()) {
+                    case SAVE -> replay.save(ProductCodec.read(record));
+                    case DELETE -> replay.delete(record.readLong());
+                    case CLEAR -> replay.clear();
+                    default -> throw new IOException("Unknown record type in " + path);
+                }
+            }
+        }
+    }
+
+    /**
+     * Maps the newest snapshot and hands it to the repository. The segments
+     * it replaced are gone, so an older snapshot cannot stand in for it.
+     * @return Its segment number, or 0 when there is none.
+     * @throws IOException if the newest snapshot is unreadable; starting
+     *         without it would silently drop the writes it holds.
+     */
+    private long loadLatestSnapshot(Replay replay) throws IOException {
+        List<Long> snapshots = numbered(SNAPSHOT);
+        if (snapshots.isEmpty()) {
+            return 0;
+        }
+        long number = snapshots.get(snapshots.size() - 1);
+        Path path = snapshotPath(number);
+        ProductSnapshot snapshot;
+        try {
+            snapshot = ProductSnapshot.open(path);
+        } catch (IOException e) {
+            throw new IOException("Snapshot " + path + " is unreadable", e);
+        }
+        replay.restore(snapshot);
+        replay.reserveIdsBelow(snapshot.nextId());
+        return number;
+    }
+
+    /**
+     * Forces the directory's entries to disk, so a rename in it survives a crash.
+     */
+    private void syncDirectory() throws IOException {
+        try (FileChannel entries = FileChannel.open(directory, StandardOpenOption.READ)) {
+            entries.force(true);
+        }
+    }
+
+    /** Opens a segment for appending. Package-private so tests can make writes fail. */
+    FileChannel openSegment(long number) throws IOException {
+        return FileChannel.open(segmentPath(number),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("wal-%06d.log", number));
+    }
+
+    private Path snapshotPath(long number) {
+        return directory.resolve(String.format("snapshot-%06d.bin", number));
+    }
+
+    /** Numbers of the files matching the pattern, in ascending order. */
+    private List<Long> numbered(Pattern pattern) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = pattern.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    numbers.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+}
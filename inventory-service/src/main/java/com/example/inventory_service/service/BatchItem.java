@@ -0,0 +1,11 @@
+package com.example.inventory_service.service;
+
+import com.example.inventory_service.dto.BatchOperation;
+
+/**
+ * One parsed item of a streamed batch.
+ * @param operation The parsed item, or null if it could not be parsed.
+ * @param error Why the item could not be parsed, or null.
+ */
+public record BatchItem(BatchOperation operation, String error) {
+}
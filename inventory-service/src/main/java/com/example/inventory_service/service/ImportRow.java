@@ -0,0 +1,12 @@
+package com.example.inventory_service.service;
+
+import com.example.inventory_service.model.Product;
+
+/**
+ * One parsed row of an import.
+ * @param line The line the row starts on in the uploaded file.
+ * @param product The parsed product, or null if the row could not be parsed.
+ * @param error Why the row could not be parsed, or null.
+ */
+public record ImportRow(long line, Product product, String error) {
+}
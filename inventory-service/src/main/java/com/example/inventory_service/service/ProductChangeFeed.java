@@ -0,0 +1,303 @@
+package com.example.inventory_service.service;
+
+import com.example.inventory_service.dto.MetricDelta;
+import com.example.inventory_service.model.Product;
+import com.example.inventory_service.repository.CategoryMetrics;
+import com.example.inventory_service.repository.InMemoryProductRepository;
+import com.example.inventory_service.repository.ProductChangeListener;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pushes product writes to subscribers, so clients can patch what they
+ * show instead of re-reading pages and metrics after every change.
+ * <p>
+ * The repository reports each write while holding the product's lock; the
+ * feed only records it in every subscriber's pending changes and returns.
+ * Pending changes are keyed by product, so a product written many times
+ * before a slow subscriber catches up is sent once, in its latest state,
+ * and metric deltas are summed per category. A subscriber holds at most
+ * {@link #MAX_PENDING} products; past that its pending changes are dropped
+ * and it is sent a single resync event telling it to reload. Delivery runs
+ * on virtual threads, one drain at a time per subscriber, so a stalled
+ * connection never holds up writers or the other subscribers.
+ */
+@Component
+public class ProductChangeFeed implements ProductChangeListener {
+    /**
+     * Products a subscriber may have pending before it is told to resync.
+     * Several import chunks, so a subscriber keeping up with an import is
+     * sent its products rather than a resync after every chunk.
+     */
+    static final int MAX_PENDING = 4 * ProductService.IMPORT_CHUNK;
+
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+    public static final String DELETED = "deleted";
+    public static final String METRICS = "metrics";
+    public static final String RESYNC = "resync";
+
+    /**
+     * Writes one event to a subscriber's connection.
+     */
+    public interface Sink {
+        /**
+         * @param event One of the event names of this class.
+         * @param data The product, {"id": ...} for a delete, the list of
+         *             {@link MetricDelta}s, or an empty object for a resync.
+         * @throws IOException if the connection is gone; the subscription is then closed.
+         */
+        void send(String event, Object data) throws IOException;
+    }
+
+    private record Change(long id, String type, Product product) {}
+
+    /** A category's change in stock and exact value, for one write. */
+    private record Delta(String category, long quantity, BigDecimal value) {}
+
+    /** A category's summed deltas, pending for one subscriber. */
+    private static final class Totals {
+        long quantity;
+        BigDecimal value = BigDecimal.ZERO;
+    }
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final Executor delivery;
+    private final ExecutorService ownedExecutor;
+
+    @Autowired
+    public ProductChangeFeed(InMemoryProductRepository repository) {
+        this(repository, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    ProductChangeFeed(InMemoryProductRepository repository, Executor delivery) {
+        this.delivery = delivery;
+        this.ownedExecutor = delivery instanceof ExecutorService executor ? executor : null;
+        repository.addChangeListener(this);
+    }
+
+    /**
+     * Starts delivering changes written from now on.
+     * @param sink Where the subscriber's events are written.
+     * @return The subscription, to be closed when the client goes away.
+     */
+    public Subscription subscribe(Sink sink) {
+        Subscription subscription = new Subscription(sink);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    @Override
+    public void changed(Product previous, Product current) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        Change change = current == null
+            ? new Change(previous.getId(), DELETED, null)
+            : new Change(current.getId(), previous == null ? CREATED : UPDATED, current);
+        List<Delta> deltas = new ArrayList<>(2);
+        addDelta(deltas, previous, -1);
+        addDelta(deltas, current, 1);
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(change, deltas);
+        }
+    }
+
+    @Override
+    public void reset() {
+        for (Subscription subscription : subscriptions) {
+            subscription.resync();
+        }
+    }
+
+    /**
+     * Adds a product's contribution to the metrics, valued exactly like
+     * the repository's own totals.
+     */
+    private static void addDelta(List<Delta> deltas, Product product, int sign) {
+        if (!CategoryMetrics.counts(product)) {
+            return;
+        }
+        BigDecimal value = CategoryMetrics.value(product);
+        deltas.add(new Delta(product.getCategory(), (long) sign * product.getStockQuantity(),
+            sign < 0 ? value.negate() : value));
+    }
+
+    /**
+     * Folds a new change into the one pending for the same product.
+     * @return The change to send, or null if the subscriber need not hear of the product at all.
+     */
+    private static Change merge(Change pending, Change change) {
+        if (pending == null) {
+            return change;
+        }
+        if (change.type().equals(DELETED)) {
+            // Created and deleted before the subscriber saw it
+            return pending.type().equals(CREATED) ? null : change;
+        }
+        return new Change(change.id(), pending.type().equals(CREATED) ? CREATED : UPDATED, change.product());
+    }
+
+    @PreDestroy
+    public void close() {
+        subscriptions.forEach(Subscription::close);
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * One subscriber's pending changes and delivery state.
+     */
+    public final class Subscription implements AutoCloseable {
+        private final Sink sink;
+        private final ReentrantLock lock = new ReentrantLock();
+        private Map<Long, Change> products = new LinkedHashMap<>();
+        private Map<String, Totals> metrics = new LinkedHashMap<>();
+        private boolean resync;
+        private boolean draining;
+        private boolean closed;
+
+        private Subscription(Sink sink) {
+            this.sink = sink;
+        }
+
+        private void offer(Change change, List<Delta> deltas) {
+            boolean schedule;
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                if (!resync) {
+                    Change merged = merge(products.get(change.id()), change);
+                    if (merged == null) {
+                        products.remove(change.id());
+                    } else {
+                        products.put(change.id(), merged);
+                    }
+                    for (Delta delta : deltas) {
+                        Totals totals = metrics.computeIfAbsent(delta.category(), category -> new Totals());
+                        totals.quantity += delta.quantity();
+                        totals.value = totals.value.add(delta.value());
+                    }
+                    if (products.size() > MAX_PENDING) {
+                        dropPending();
+                    }
+                }
+                schedule = !draining;
+                draining = true;
+            } finally {
+                lock.unlock();
+            }
+            if (schedule) {
+                delivery.execute(this::drain);
+            }
+        }
+
+        private void resync() {
+            boolean schedule;
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                dropPending();
+                schedule = !draining;
+                draining = true;
+            } finally {
+                lock.unlock();
+            }
+            if (schedule) {
+                delivery.execute(this::drain);
+            }
+        }
+
+        /** Replaces whatever is pending with a single resync. Called with the lock held. */
+        private void dropPending() {
+            products = new LinkedHashMap<>();
+            metrics = new LinkedHashMap<>();
+            resync = true;
+        }
+
+        /**
+         * Sends pending changes until none are left. Only one drain runs
+         * per subscriber; changes arriving meanwhile are picked up by its
+         * next round.
+         */
+        private void drain() {
+            while (true) {
+                Map<Long, Change> changes;
+                Map<String, Totals> totals;
+                boolean reload;
+                lock.lock();
+                try {
+                    if (closed || (products.isEmpty() && metrics.isEmpty() && !resync)) {
+                        draining = false;
+                        return;
+                    }
+                    changes = products;
+                    totals = metrics;
+                    reload = resync;
+                    products = new LinkedHashMap<>();
+                    metrics = new LinkedHashMap<>();
+                    resync = false;
+                } finally {
+                    lock.unlock();
+                }
+                try {
+                    if (reload) {
+                        sink.send(RESYNC, Map.of());
+                    }
+                    for (Change change : changes.values()) {
+                        sink.send(change.type(), change.type().equals(DELETED) ? Map.of("id", change.id()) : change.product());
+                    }
+                    List<MetricDelta> deltas = new ArrayList<>();
+                    totals.forEach((category, sums) -> {
+                        if (sums.quantity != 0 || sums.value.signum() != 0) {
+                            deltas.add(new MetricDelta(category, (int) sums.quantity, sums.value.doubleValue()));
+                        }
+                    });
+                    if (!deltas.isEmpty()) {
+                        sink.send(METRICS, deltas);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    close();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Stops delivery and forgets pending changes. Safe to call more than once.
+         */
+        @Override
+        public void close() {
+            subscriptions.remove(this);
+            lock.lock();
+            try {
+                closed = true;
+                products = new LinkedHashMap<>();
+                metrics = new LinkedHashMap<>();
+                draining = false;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
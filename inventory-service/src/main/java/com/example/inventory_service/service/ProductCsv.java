@@ -0,0 +1,226 @@
+package com.example.inventory_service.service;
+
+import com.example.inventory_service.model.Product;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * CSV layout of products: one header line, then one line per product.
+ * Fields are quoted only when they contain a comma, a quote or a line
+ * break, as in RFC 4180. Imports match columns by header name, so the
+ * columns may come in any order and unknown ones are ignored.
+ */
+public final class ProductCsv {
+
+    public static final String HEADER = "id,name,category,unitPrice,stockQuantity,expirationDate,creationDate,lastUpdatedDate";
+
+    private ProductCsv() {
+    }
+
+    public static void writeHeader(Writer out) throws IOException {
+        out.write(HEADER);
+        out.write('\n');
+    }
+
+    public static void writeRow(Writer out, Product product) throws IOException {
+        out.write(String.valueOf(product.getId()));
+        out.write(',');
+        writeText(out, product.getName());
+        out.write(',');
+        writeText(out, product.getCategory());
+        out.write(',');
+        out.write(Double.toString(product.getUnitPrice()));
+        out.write(',');
+        out.write(Integer.toString(product.getStockQuantity()));
+        out.write(',');
+        writeDate(out, product.getExpirationDate());
+        out.write(',');
+        writeDate(out, product.getCreationDate());
+        out.write(',');
+        writeDate(out, product.getLastUpdatedDate());
+        out.write('\n');
+    }
+
+    /**
+     * Reads products from CSV as a stream: records are parsed one at a time
+     * as the iterator advances, so only the current record is held.
+     * IDs and dates managed by the service are ignored.
+     * @param in The CSV text, starting with the header line.
+     * @return One row per record; a record that cannot be converted carries an error instead of a product.
+     * @throws IllegalArgumentException if the header is missing.
+     */
+    public static Iterator<ImportRow> read(Reader in) {
+        RecordReader records = new RecordReader(in);
+        List<String> header = records.next();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV header is missing.");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim(), i);
+        }
+        return new Iterator<>() {
+            private long line = records.line();
+            private List<String> next = records.next();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public ImportRow next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                ImportRow row = toRow(line, next, columns);
+                line = records.line();
+                next = records.next();
+                return row;
+            }
+        };
+    }
+
+    private static ImportRow toRow(long line, List<String> fields, Map<String, Integer> columns) {
+        Product product = new Product();
+        String field = null;
+        try {
+            field = "name";
+            product.setName(text(fields, columns, field));
+            field = "category";
+            product.setCategory(text(fields, columns, field));
+            field = "unitPrice";
+            String price = text(fields, columns, field);
+            product.setUnitPrice(price != null ? Double.parseDouble(price) : 0);
+            field = "stockQuantity";
+            String quantity = text(fields, columns, field);
+            product.setStockQuantity(quantity != null ? Integer.parseInt(quantity.trim()) : 0);
+            field = "expirationDate";
+            String expiration = text(fields, columns, field);
+            product.setExpirationDate(expiration != null ? LocalDate.parse(expiration.trim()) : null);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            return new ImportRow(line, null, field + ": invalid value");
+        }
+        return new ImportRow(line, product, null);
+    }
+
+    /** A field's text, or null when the column is absent or the field is empty. */
+    private static String text(List<String> fields, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= fields.size() || fields.get(index).isEmpty()) {
+            return null;
+        }
+        return fields.get(index);
+    }
+
+    /**
+     * Splits CSV text into records, handling quoted fields with embedded
+     * commas, doubled quotes and line breaks.
+     */
+    private static final class RecordReader {
+        private final Reader in;
+        private long line = 1;
+        private int pending = -2;
+
+        RecordReader(Reader in) {
+            this.in = in;
+        }
+
+        /** The line the next record starts on. */
+        long line() {
+            return line;
+        }
+
+        /** @return The next record's fields, or null at the end of the input. */
+        List<String> next() {
+            try {
+                int c = read();
+                if (c == -1) {
+                    return null;
+                }
+                List<String> fields = new ArrayList<>();
+                StringBuilder field = new StringBuilder();
+                boolean quoted = false;
+                while (true) {
+                    if (quoted) {
+                        if (c == -1) {
+                            throw new IllegalArgumentException("Unterminated quoted field before line " + line + ".");
+                        }
+                        if (c == '"') {
+                            int after = read();
+                            if (after == '"') {
+                                field.append('"');
+                            } else {
+                                quoted = false;
+                                c = after;
+                                continue;
+                            }
+                        } else {
+                            if (c == '\n') {
+                                line++;
+                            }
+                            field.append((char) c);
+                        }
+                    } else if (c == '"' && field.isEmpty()) {
+                        quoted = true;
+                    } else if (c == ',') {
+                        fields.add(field.toString());
+                        field.setLength(0);
+                    } else if (c == '\n' || c == -1) {
+                        fields.add(field.toString());
+                        line++;
+                        return fields;
+                    } else if (c == '\r') {
+                        int after = read();
+                        if (after != '\n') {
+                            pending = after;
+                        }
+                        fields.add(field.toString());
+                        line++;
+                        return fields;
+                    } else {
+                        field.append((char) c);
+                    }
+                    c = read();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private int read() throws IOException {
+            if (pending != -2) {
+                int c = pending;
+                pending = -2;
+                return c;
+            }
+            return in.read();
+        }
+    }
+
+    private static void writeText(Writer out, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = value.chars().anyMatch(c -> c == ',' || c == '"' || c == '\n' || c == '\r');
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    private static void writeDate(Writer out, LocalDate date) throws IOException {
+        if (date != null) {
+            out.write(date.toString());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.inventory_service.service;
+
+import com.example.inventory_service.model.Product;
+
+import java.io.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Opaque continuation token for keyset pagination.
+ * A cursor records the sort it was issued for, plus the ID and sort-key
+ * values of the last product on the page. It decodes back into a probe
+ * Product that the sort indexes can seek to, so the next page starts right
+ * after that row even if rows were inserted or deleted in between.
+ */
+final class ProductCursor {
+
+    private static final int VERSION = 1;
+
+    private ProductCursor() {
+    }
+
+    /**
+     * Encodes the position of a product.
+     * @param sort A description of the sort the page was built with.
+     * @param last The last product on the page.
+     * @param fields The sort fields whose values locate the product.
+     * @return A URL-safe token.
+     */
+    static String encode(String sort, Product last, List<String> fields) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(VERSION);
+            out.writeUTF(sort);
+            out.writeLong(last.getId());
+            for (String field : fields) {
+                out.writeUTF(keyOf(last, field));
+            }
+            out.flush();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Decodes a token into a probe product holding only the ID and sort keys.
+     * @param token The token returned with a previous page.
+     * @param sort The sort of the current request; must match the token's.
+     * @param fields The sort fields, in the order used by {@link #encode}.
+     * @return The probe product.
+     * @throws IllegalArgumentException if the token is malformed or was issued for another sort.
+     */
+    static Product decode(String token, String sort, List<String> fields) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)));
+            if (in.readByte() != VERSION || !in.readUTF().equals(sort)) {
+                throw new IllegalArgumentException("Cursor does not match the requested sort.");
+            }
+            Product probe = new Product();
+            probe.setId(in.readLong());
+            for (String field : fields) {
+                setKey(probe, field, in.readUTF());
+            }
+            return probe;
+        } catch (IOException | DateTimeParseException e) {
+            // A NumberFormatException or a Base64 error is already an IllegalArgumentException
+            throw new IllegalArgumentException("Invalid cursor.", e);
+        }
+    }
+
+    /**
+     * Builds a probe positioned before every product sharing the probe's
+     * key for the given field.
+     * @param probe A decoded cursor probe.
+     * @param field The sort field whose run should be re-read.
+     * @return A probe with the same key and the lowest possible ID.
+     */
+    static Product runStart(Product probe, String field) {
+        Product start = new Product();
+        start.setId(Long.MIN_VALUE);
+        setKey(start, field, keyOf(probe, field));
+        return start;
+    }
+
+    private static String keyOf(Product product, String field) {
+        return switch (field) {
+            case "name" -> product.getName();
+            case "category" -> product.getCategory();
+            case "unitPrice" -> Double.toString(product.getUnitPrice());
+            case "stockQuantity" -> Integer.toString(product.getStockQuantity());
+            case "expirationDate" -> product.getExpirationDate() != null ? product.getExpirationDate().toString() : "";
+            default -> "";
+        };
+    }
+
+    private static void setKey(Product probe, String field, String value) {
+        switch (field) {
+            case "name" -> probe.setName(value);
+            case "category" -> probe.setCategory(value);
+            case "unitPrice" -> probe.setUnitPrice(Double.parseDouble(value));
+            case "stockQuantity" -> probe.setStockQuantity(Integer.parseInt(value));
+            case "expirationDate" -> probe.setExpirationDate(value.isEmpty() ? null : LocalDate.parse(value));
+            default -> { }
+        }
+    }
+}
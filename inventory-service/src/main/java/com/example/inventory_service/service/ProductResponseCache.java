@@ -0,0 +1,221 @@
+package com.example.inventory_service.service;
+
+import com.example.inventory_service.repository.InMemoryProductRepository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the serialized bodies of the catalog-wide read endpoints (product
+ * lists, pages and metrics), so repeated reads of an unchanged catalog are
+ * answered without querying or serializing anything.
+ * <p>
+ * Bodies are only valid for the repository generation they were computed
+ * at. Any write can move a product into or out of a listing or page and
+ * changes the totals, so the first lookup after a write drops every entry.
+ * The ETag is derived from the generation alone: a client revalidating
+ * with If-None-Match is answered 304 before the cache is even consulted.
+ * A body computed while a write landed may already include it, so it is
+ * neither kept nor tagged: the generation is read again once it is
+ * serialized, and only a body no write overlapped gets the strong tag.
+ * Bodies are bounded by their total size and evicted least recently used
+ * first; one larger than a quarter of the budget is served but not kept,
+ * so a single huge listing cannot flush everything else.
+ * <p>
+ * Lookups are counted by the cache.gets meter, tagged cache=products and
+ * result=hit, miss or not_modified (a hit that sent no body); size
+ * evictions by cache.evictions. Both are listed under /actuator/metrics.
+ */
+@Component
+@Profile("!reactive")
+public class ProductResponseCache {
+    public static final String NAME = "products";
+
+    /**
+     * What to answer a read with.
+     * @param etag The entity tag of the current catalog, or null if the body
+     *             cannot be pinned to one generation.
+     * @param body The serialized JSON, or null when the client's copy is current.
+     */
+    public record Response(String etag, byte[] body) {
+        public boolean notModified() {
+            return body == null;
+        }
+    }
+
+    private final InMemoryProductRepository repository;
+    private final ObjectMapper objectMapper;
+    private final long maxBytes;
+    // Generations restart from zero with the process, so tags from an earlier run must not match
+    private final String epoch = Long.toHexString(System.currentTimeMillis());
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<List<?>, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long generation = -1;
+    private long bytes;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter notModified;
+    private final Counter evictions;
+
+    /**
+     * @param maxBytes Total size of the kept bodies; 0 turns caching off, ETags still work.
+     */
+    public ProductResponseCache(InMemoryProductRepository repository, ObjectMapper objectMapper,
+                                @Value("${inventory.cache.max-bytes:16777216}") long maxBytes,
+                                MeterRegistry registry) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.maxBytes = maxBytes;
+        this.hits = gets(registry, "hit");
+        this.misses = gets(registry, "miss");
+        this.notModified = gets(registry, "not_modified");
+        this.evictions = Counter.builder("cache.evictions").tag("cache", NAME).register(registry);
+        Gauge.builder("cache.size", this, ProductResponseCache::size).tag("cache", NAME).register(registry);
+        Gauge.builder("cache.bytes", this, ProductResponseCache::bytes).tag("cache", NAME).register(registry);
+    }
+
+    private static Counter gets(MeterRegistry registry, String result) {
+        return Counter.builder("cache.gets").tag("cache", NAME).tag("result", result).register(registry);
+    }
+
+    /**
+     * Answers a read of the current catalog.
+     * @param ifNoneMatch The request's If-None-Match header, or null.
+     * @param key The endpoint and every parameter that shapes the body.
+     * @param body Computes the response object on a miss.
+     * @return The body to send, or a not-modified response.
+     */
+    public Response get(String ifNoneMatch, List<?> key, Supplier<?> body) {
+        long current = repository.generation();
+        String etag = "\"" + epoch + "-" + current + "\"";
+        if (matches(ifNoneMatch, etag)) {
+            notModified.increment();
+            return new Response(etag, null);
+        }
+        byte[] cached = lookup(key, current);
+        if (cached != null) {
+            hits.increment();
+            return new Response(etag, cached);
+        }
+        misses.increment();
+        byte[] serialized;
+        try {
+            serialized = objectMapper.writeValueAsBytes(body.get());
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (repository.generation() != current) {
+            // A write landed while the body was computed; it may or may not be in it
+            return new Response(null, serialized);
+        }
+        store(key, current, serialized);
+        return new Response(etag, serialized);
+    }
+
+    /**
+     * Compares entity tags weakly, as If-None-Match requires.
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private byte[] lookup(List<?> key, long current) {
+        lock.lock();
+        try {
+            advance(current);
+            return current == generation ? entries.get(key) : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void store(List<?> key, long current, byte[] body) {
+        if (body.length > maxBytes / 4) {
+            return;
+        }
+        lock.lock();
+        try {
+            advance(current);
+            if (current != generation) {
+                // Computed before a write another request has already seen
+                return;
+            }
+            byte[] previous = entries.put(key, body);
+            bytes += body.length - (previous != null ? previous.length : 0);
+            Iterator<byte[]> eldest = entries.values().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().length;
+                eldest.remove();
+                evictions.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops every entry once a newer generation is seen. Called with the lock held.
+     */
+    private void advance(long current) {
+        if (current > generation) {
+            entries.clear();
+            bytes = 0;
+            generation = current;
+        }
+    }
+
+    /**
+     * Drops every kept body.
+     */
+    void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+            bytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long bytes() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,30 +1,58 @@
 package com.example.inventory_service.service; 
 
+import com.example.inventory_service.dto.BatchOperation;
+import com.example.inventory_service.dto.BatchResult;
+import com.example.inventory_service.dto.ImportSummary;
 import com.example.inventory_service.dto.PageResponse;
+import com.example.inventory_service.exception.VersionConflictException;
 import com.example.inventory_service.model.Product;
 import com.example.inventory_service.model.InventoryMetric;
 import com.example.inventory_service.repository.InMemoryProductRepository;
 
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import java.util.Comparator;
 
 @Service
 @Validated
 public class ProductService {
+    /** Rows validated and inserted together during an import, and items applied together from a streamed batch. */
+    static final int IMPORT_CHUNK = 1_000;
+    /** Rejected rows listed in an import summary; further ones are only counted. */
+    static final int MAX_REJECTED_ROWS = 1_000;
+
     private final InMemoryProductRepository repository;
-    private int nextId = 1;
+    private final Validator validator;
 
     public ProductService(InMemoryProductRepository repository) {
+        this(repository, Validation.buildDefaultValidatorFactory().getValidator());
+    }
+
+    @Autowired
+    public ProductService(InMemoryProductRepository repository, Validator validator) {
         this.repository = repository;
+        this.validator = validator;
     }
 
     /**
@@ -32,14 +60,13 @@ public class ProductService {
      * @return List of all products.
      */
     public Product createProduct(@Valid Product product) {
-        boolean exists = repository.findAll().stream()
-        .anyMatch(p -> p.getName().equalsIgnoreCase(product.getName()));
-
-        if (exists) {
+        // Fast rejection; the repository's name index settles concurrent creates
+        if (repository.existsByName(product.getName())) {
             throw new IllegalArgumentException("Product with the same name already exists.");
         }
 
-        product.setId((long) nextId++);
+        // IDs are always allocated by the repository, never taken from the request
+        product.setId(null);
         product.setCreationDate(LocalDate.now());
         product.setLastUpdatedDate(LocalDate.now());
         
@@ -62,14 +89,85 @@ public class ProductService {
      * @return List of products that match the given stock status.
      */
     public List<Product> getFilteredProducts(String name, List<String> categories, Boolean inStock) {
-        return repository.findAll().stream()
-            .filter(p -> name == null || p.getName().toLowerCase().contains(name.toLowerCase()))
-            .filter(p -> categories == null || categories.isEmpty() || categories.stream().anyMatch(cat -> 
-                p.getCategory().toLowerCase().trim().contains(cat.toLowerCase().trim())))
-            .filter(p -> inStock == null || (inStock ? p.getStockQuantity() > 0 : p.getStockQuantity() <= 0))
+        Set<Long> ids = matchingIds(name, categories, inStock);
+        if (ids == null) {
+            return repository.findAll();
+        }
+        return ids.stream()
+            .sorted()
+            .map(repository::findById)
+            .filter(Objects::nonNull)
             .toList();
     }
 
+    /**
+     * Resolves the filters to product IDs using only repository indexes.
+     * @param name The name fragment (optional).
+     * @param categories The category fragments (optional).
+     * @param inStock The stock state (optional).
+     * @return The matching IDs, or null when no filter was given.
+     */
+    private Set<Long> matchingIds(String name, List<String> categories, Boolean inStock) {
+        Set<Long> ids = null;
+        if (name != null) {
+            ids = repository.findIdsByNameContaining(name);
+        }
+        if (categories != null && !categories.isEmpty()) {
+            ids = intersect(ids, repository.findIdsByCategories(categories));
+        }
+        if (inStock != null) {
+            ids = intersect(ids, repository.findIdsByStock(inStock));
+        }
+        return ids;
+    }
+
+    /**
+     * Intersects two ID sets by walking the smaller one.
+     * @param left The first set, or null when no filter has been applied yet.
+     * @param right The second set.
+     * @return The IDs present in both sets.
+     */
+    private Set<Long> intersect(Set<Long> left, Set<Long> right) {
+        if (left == null) {
+            return right;
+        }
+        Set<Long> smaller = left.size() <= right.size() ? left : right;
+        Set<Long> larger = smaller == left ? right : left;
+        Set<Long> result = new HashSet<>();
+        for (Long id : smaller) {
+            if (larger.contains(id)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Streams the products matching the same filters as
+     * {@link #getFilteredProducts}, in ID order, without collecting them.
+     * @param name A name fragment (optional).
+     * @param categories Category fragments (optional).
+     * @param inStock The stock status (optional).
+     * @return A lazy stream of the matching products.
+     */
+    public Stream<Product> streamProducts(String name, List<String> categories, Boolean inStock) {
+        return repository.streamMatching(name, categories, inStock);
+    }
+
+    /**
+     * Retrieves a product by its ID.
+     * @param id The ID of the product.
+     * @return The product.
+     * @throws NoSuchElementException if the product does not exist.
+     */
+    public Product getProduct(Long id) {
+        Product product = repository.findById(id);
+        if (product == null) {
+            throw new NoSuchElementException("Product with ID " + id + " not found.");
+        }
+        return product;
+    }
+
     /**
      * Updates an existing product.
      * @param id The ID of the product to update.
@@ -77,20 +175,267 @@ public class ProductService {
      * @return The updated product.
      */
     public Product updateProduct(Long id, Product updatedProduct) {
-        Product existing = repository.findById(id);
-        if (existing == null) {
-            throw new RuntimeException("Product with ID " + id + " not found.");
+        return updateProduct(id, updatedProduct, null);
+    }
+
+    /**
+     * Updates an existing product if it is still at the version the client
+     * read. The check and the write are one atomic step in the repository,
+     * so of two clients updating from the same version only one succeeds.
+     * @param expectedVersion The version the client read, or null to update unconditionally.
+     * @throws NoSuchElementException if the product does not exist.
+     * @throws VersionConflictException if the product has been written since.
+     */
+    public Product updateProduct(Long id, Product updatedProduct, Long expectedVersion) {
+        return repository.update(id, expectedVersion, existing -> replacement(existing, updatedProduct));
+    }
+
+    /**
+     * Adds to or removes from a product's stock. The change is applied to
+     * the stored quantity under the product's write lock, so concurrent
+     * adjustments of the same product all count, unlike a full update
+     * built from a quantity the client read earlier.
+     * @param id The ID of the product.
+     * @param delta The number of units to add, or remove if negative.
+     * @return The updated product.
+     * @throws NoSuchElementException if the product does not exist.
+     * @throws IllegalArgumentException if the stock would drop below zero.
+     */
+    public Product adjustStock(Long id, int delta) {
+        return repository.update(id, existing -> {
+            long quantity = (long) existing.getStockQuantity() + delta;
+            if (quantity < 0) {
+                throw new IllegalArgumentException("Insufficient stock: " + existing.getStockQuantity()
+                    + " units left, cannot remove " + -(long) delta + ".");
+            }
+            if (quantity > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Stock quantity would overflow.");
+            }
+            Product adjusted = replacement(existing, existing);
+            adjusted.setStockQuantity((int) quantity);
+            return adjusted;
+        });
+    }
+
+    /**
+     * Builds the new version of a product. Stored products are never mutated
+     * in place, so the repository can still see the old values when it
+     * updates its indexes.
+     */
+    private static Product replacement(Product existing, Product updatedProduct) {
+        Product replacement = new Product();
+        replacement.setId(existing.getId());
+        replacement.setName(updatedProduct.getName());
+        replacement.setCategory(updatedProduct.getCategory());
+        replacement.setUnitPrice(updatedProduct.getUnitPrice());
+        replacement.setStockQuantity(updatedProduct.getStockQuantity());
+        replacement.setExpirationDate(updatedProduct.getExpirationDate());
+        replacement.setCreationDate(existing.getCreationDate());
+        replacement.setLastUpdatedDate(LocalDate.now());
+        return replacement;
+    }
+
+    /**
+     * Applies a batch of creates, updates and deletes.
+     * Every item is validated first; the valid ones are then applied in
+     * request order inside a single repository write section. Items fail
+     * independently, so one bad item does not reject the rest.
+     * @param operations The batch items.
+     * @return One result per item, in request order.
+     */
+    public List<BatchResult> applyBatch(List<BatchOperation> operations) {
+        List<BatchResult> results = new ArrayList<>(operations.size());
+        applyChunk(operations.stream().map(operation -> new BatchItem(operation, null)).toList(), results);
+        return results;
+    }
+
+    /**
+     * Applies a streamed batch, such as an NDJSON upload. Items are taken
+     * a chunk at a time, so only their results are kept whatever the
+     * upload size; each chunk is validated and applied like
+     * {@link #applyBatch(List)}, in its own write section, and sees the
+     * writes of the chunks before it. An item that could not be parsed
+     * fails on its own.
+     * @param items The parsed items, in request order.
+     * @return One result per item, in request order.
+     */
+    public List<BatchResult> applyBatchItems(Iterator<BatchItem> items) {
+        List<BatchResult> results = new ArrayList<>();
+        List<BatchItem> chunk = new ArrayList<>(IMPORT_CHUNK);
+        while (items.hasNext()) {
+            chunk.add(items.next());
+            if (chunk.size() == IMPORT_CHUNK || !items.hasNext()) {
+                applyChunk(chunk, results);
+                chunk.clear();
+            }
         }
+        return results;
+    }
 
-        existing.setName(updatedProduct.getName());
-        existing.setCategory(updatedProduct.getCategory());
-        existing.setUnitPrice(updatedProduct.getUnitPrice());
-        existing.setStockQuantity(updatedProduct.getStockQuantity());
-        existing.setExpirationDate(updatedProduct.getExpirationDate());
-        existing.setLastUpdatedDate(LocalDate.now());
+    /**
+     * Validates and applies batch items in one repository write section.
+     * @param results Receives one result per item; its size is the index of the first item.
+     */
+    private void applyChunk(List<BatchItem> items, List<BatchResult> results) {
+        int offset = results.size();
+        BatchResult[] chunk = new BatchResult[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            BatchItem item = items.get(i);
+            if (item.error() != null) {
+                chunk[i] = new BatchResult(offset + i, null, 400, null, item.error());
+                continue;
+            }
+            String error = validate(item.operation());
+            if (error != null) {
+                chunk[i] = new BatchResult(offset + i, item.operation().getOp(), 400, item.operation().getId(), error);
+            }
+        }
 
-        repository.save(existing);
-        return existing;
+        LocalDate today = LocalDate.now();
+        repository.writeBatch(batch -> {
+            for (int i = 0; i < items.size(); i++) {
+                if (chunk[i] != null) {
+                    continue;
+                }
+                int index = offset + i;
+                BatchOperation operation = items.get(i).operation();
+                String op = operation.getOp();
+                try {
+                    switch (op.toLowerCase(Locale.ROOT)) {
+                        case "create" -> {
+                            Product product = operation.getProduct();
+                            product.setId(null);
+                            product.setCreationDate(today);
+                            product.setLastUpdatedDate(today);
+                            chunk[i] = new BatchResult(index, op, 201, batch.save(product).getId(), null);
+                        }
+                        case "update" -> {
+                            Product existing = batch.findById(operation.getId());
+                            if (existing == null) {
+                                chunk[i] = new BatchResult(index, op, 404, operation.getId(),
+                                    "Product with ID " + operation.getId() + " not found.");
+                            } else {
+                                batch.save(replacement(existing, operation.getProduct()));
+                                chunk[i] = new BatchResult(index, op, 200, operation.getId(), null);
+                            }
+                        }
+                        default -> {
+                            boolean deleted = batch.deleteById(operation.getId());
+                            chunk[i] = deleted
+                                ? new BatchResult(index, op, 204, operation.getId(), null)
+                                : new BatchResult(index, op, 404, operation.getId(),
+                                    "Product with ID " + operation.getId() + " not found");
+                        }
+                    }
+                } catch (IllegalArgumentException e) {
+                    chunk[i] = new BatchResult(index, op, 400, operation.getId(), e.getMessage());
+                }
+            }
+        });
+        results.addAll(Arrays.asList(chunk));
+    }
+
+    /**
+     * Imports new products from a stream of parsed rows. Rows are taken a
+     * chunk at a time, so memory stays bounded whatever the upload size;
+     * each chunk is validated in parallel and its valid rows are inserted
+     * in one repository write. Bad rows are rejected without stopping the
+     * import.
+     * @param rows The parsed rows, in file order.
+     * @return How many rows were imported, and why the others were rejected.
+     */
+    public ImportSummary importProducts(Iterator<ImportRow> rows) {
+        List<ImportRow> chunk = new ArrayList<>(IMPORT_CHUNK);
+        List<ImportSummary.RejectedRow> rejectedRows = new ArrayList<>();
+        long total = 0;
+        long imported = 0;
+        while (rows.hasNext()) {
+            chunk.add(rows.next());
+            if (chunk.size() == IMPORT_CHUNK || !rows.hasNext()) {
+                total += chunk.size();
+                imported += importChunk(chunk, rejectedRows);
+                chunk.clear();
+            }
+        }
+        long rejected = total - imported;
+        return new ImportSummary(total, imported, rejected,
+            rejectedRows.subList(0, (int) Math.min(rejectedRows.size(), MAX_REJECTED_ROWS)));
+    }
+
+    /**
+     * @return The number of rows inserted.
+     */
+    private int importChunk(List<ImportRow> chunk, List<ImportSummary.RejectedRow> rejectedRows) {
+        String[] errors = new String[chunk.size()];
+        IntStream.range(0, chunk.size()).parallel().forEach(i -> {
+            ImportRow row = chunk.get(i);
+            errors[i] = row.error() != null ? row.error() : violations(row.product());
+        });
+
+        LocalDate today = LocalDate.now();
+        List<Product> valid = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            if (errors[i] == null) {
+                Product product = chunk.get(i).product();
+                product.setCreationDate(today);
+                product.setLastUpdatedDate(today);
+                valid.add(product);
+            }
+        }
+        List<Product> inserted = repository.insertAll(valid);
+
+        int count = 0;
+        int next = 0;
+        for (int i = 0; i < chunk.size(); i++) {
+            if (errors[i] == null && inserted.get(next++) == null) {
+                errors[i] = "Product with the same name already exists.";
+            }
+            if (errors[i] == null) {
+                count++;
+            } else if (rejectedRows.size() < MAX_REJECTED_ROWS) {
+                rejectedRows.add(new ImportSummary.RejectedRow(chunk.get(i).line(), errors[i]));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks the shape of a batch item and validates its product the way
+     * the single-item endpoints do.
+     * @return An error message, or null if the item is valid.
+     */
+    private String validate(BatchOperation operation) {
+        String op = operation.getOp() != null ? operation.getOp().toLowerCase(Locale.ROOT) : "";
+        boolean needsId = op.equals("update") || op.equals("delete");
+        boolean needsProduct = op.equals("create") || op.equals("update");
+        if (!needsId && !needsProduct) {
+            return "Unknown operation: " + operation.getOp();
+        }
+        if (needsId && operation.getId() == null) {
+            return "An ID is required for " + op + ".";
+        }
+        if (needsProduct) {
+            if (operation.getProduct() == null) {
+                return "A product is required for " + op + ".";
+            }
+            return violations(operation.getProduct());
+        }
+        return null;
+    }
+
+    /**
+     * Validates a product against its constraints.
+     * @return The violations joined into one message, or null if the product is valid.
+     */
+    private String violations(Product product) {
+        Set<ConstraintViolation<Product>> violations = validator.validate(product);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+            .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+            .sorted()
+            .collect(Collectors.joining("; "));
     }
 
     /**
@@ -105,33 +450,221 @@ public class ProductService {
     }
 
     /**
-     * Retrieves a product by its ID.
-     * @param id The ID of the product to retrieve.
-     * @return The product with the specified ID.
+     * Retrieves a page of products sorted by up to two fields.
+     * The primary field is read in order from its repository sort index, so
+     * only the rows up to the end of the page are visited. When a secondary
+     * field is given, each run of products sharing the primary key is
+     * ordered by the secondary field with a bounded heap, and runs that end
+     * before the page starts are skipped without being sorted.
+     * @param page The page number (0-based).
+     * @param size The number of products per page.
+     * @param sortBy1 The primary sort field, or null for ID order.
+     * @param direction1 The primary direction ("asc" or "desc").
+     * @param sortBy2 The secondary sort field (optional).
+     * @param direction2 The secondary direction ("asc" or "desc").
+     * @return The requested page.
      */
     public PageResponse<Product> getPaginatedProducts(int page, int size, String sortBy1, String direction1, String sortBy2, String direction2) {
-        List<Product> allProducts = this.repository.findAll();
-        
-        Comparator<Product> comparator = Comparator.comparing(Product::getId); // default (no-op)
+        return getPaginatedProducts(page, size, sortBy1, direction1, sortBy2, direction2, null);
+    }
+
+    /**
+     * Retrieves a page of products, either by page number or by cursor.
+     * With a cursor from a previous response the page starts right after
+     * the row the cursor points at, by seeking into the primary sort index,
+     * so deep pages cost the same as the first one and concurrent inserts do
+     * not shift rows between pages. The page number is then only echoed back.
+     * @param page The page number (0-based), ignored when a cursor is given.
+     * @param size The number of products per page.
+     * @param sortBy1 The primary sort field, or null for ID order.
+     * @param direction1 The primary direction ("asc" or "desc").
+     * @param sortBy2 The secondary sort field (optional).
+     * @param direction2 The secondary direction ("asc" or "desc").
+     * @param cursor The nextCursor of the previous page, or null.
+     * @return The requested page, with a cursor to the next one when it is full.
+     */
+    public PageResponse<Product> getPaginatedProducts(int page, int size, String sortBy1, String direction1,
+            String sortBy2, String direction2, String cursor) {
+        return queryProducts(null, null, null, page, size, sortBy1, direction1, sortBy2, direction2, cursor);
+    }
+
+    /**
+     * Filters, sorts and paginates products in one pass.
+     * The filters are first resolved to an exact ID set from the repository
+     * indexes, which also gives totalElements without loading any product.
+     * The page is then built one of two ways, whichever touches fewer rows:
+     * a selective filter loads its few candidates and keeps the top rows in
+     * a bounded heap, while a broad filter walks the primary sort index and
+     * skips non-matching rows until the page is full.
+     * @param name The name fragment (optional).
+     * @param categories The category fragments (optional).
+     * @param inStock The stock state (optional).
+     * @param page The page number (0-based), ignored when a cursor is given.
+     * @param size The number of products per page.
+     * @param sortBy1 The primary sort field, or null for ID order.
+     * @param direction1 The primary direction ("asc" or "desc").
+     * @param sortBy2 The secondary sort field (optional).
+     * @param direction2 The secondary direction ("asc" or "desc").
+     * @param cursor The nextCursor of the previous page, or null.
+     * @return The requested page of matching products.
+     */
+    public PageResponse<Product> queryProducts(String name, List<String> categories, Boolean inStock,
+            int page, int size, String sortBy1, String direction1, String sortBy2, String direction2, String cursor) {
+        if (page < 0 || size < 0) {
+            throw new IllegalArgumentException("Page and size must be zero or positive.");
+        }
+        Set<Long> ids = matchingIds(name, categories, inStock);
+        long catalogSize = repository.count();
+        long total = ids == null ? catalogSize : ids.size();
+        long offset = cursor == null ? (long) page * size : 0;
+
+        // An empty page only reports the total, as it always has
+        if (size == 0 || offset > total) {
+            return new PageResponse<>(List.of(), page, size, total);
+        }
+
+        // Unknown fields fall back to ID order, like getComparator does
+        String primaryField = sortBy1 != null && repository.isSortable(sortBy1) ? sortBy1 : "id";
+        String primaryDirection = sortBy1 == null || isAscending(direction1) ? "asc" : "desc";
+        // IDs are unique, so a secondary field never changes an ID-ordered page
+        String secondaryField = primaryField.equals("id") ? null : sortBy2;
+        String secondaryDirection = isAscending(direction2) ? "asc" : "desc";
+
+        String sort = primaryField + ":" + primaryDirection
+            + (secondaryField != null ? "," + secondaryField + ":" + secondaryDirection : "");
+        List<String> cursorFields = secondaryField != null ? List.of(primaryField, secondaryField) : List.of(primaryField);
+        Product after = cursor != null ? ProductCursor.decode(cursor, sort, cursorFields) : null;
+
+        Comparator<Product> primary = getComparator(primaryField, primaryDirection);
+        Comparator<Product> secondary = secondaryField != null ? getComparator(secondaryField, secondaryDirection) : null;
+
+        // Loading m candidates beats walking the index when the index walk would
+        // visit more rows, roughly (offset + size) * catalogSize / m of them
+        List<Product> content;
+        if (ids != null && (double) ids.size() * ids.size() <= (double) (offset + size) * catalogSize) {
+            content = pageFromCandidates(ids, primary, secondary, offset, size, after);
+        } else {
+            content = pageFromIndex(ids, primaryField, primaryDirection.equals("asc"), primary, secondary, offset, size, after);
+        }
+
+        String nextCursor = content.size() == size
+            ? ProductCursor.encode(sort, content.get(content.size() - 1), cursorFields)
+            : null;
+        return new PageResponse<>(content, page, size, total, nextCursor);
+    }
 
-        if (sortBy1 != null) {
-            comparator = getComparator(sortBy1, direction1);
-            if (sortBy2 != null) {
-                comparator = comparator.thenComparing(getComparator(sortBy2, direction2));
+    /**
+     * Builds a page from an explicit candidate set with a top-K heap.
+     */
+    private List<Product> pageFromCandidates(Set<Long> ids, Comparator<Product> primary, Comparator<Product> secondary,
+            long offset, int size, Product after) {
+        Comparator<Product> order = (secondary != null ? primary.thenComparing(secondary) : primary)
+            .thenComparing(Product::getId);
+        List<Product> candidates = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Product product = repository.findById(id);
+            if (product != null && (after == null || order.compare(product, after) > 0)) {
+                candidates.add(product);
             }
-            allProducts = allProducts.stream().sorted(comparator).toList();
         }
-        
-        int fromIndex = page * size;
-        int toIndex = Math.min(fromIndex + size, allProducts.size());
+        int from = (int) Math.min(offset, candidates.size());
+        int to = (int) Math.min(offset + size, candidates.size());
+        return smallest(candidates, order, to).subList(from, to);
+    }
+
+    /**
+     * Builds a page by walking the primary sort index and dropping rows that
+     * are not in the candidate set, stopping as soon as the page is full.
+     */
+    private List<Product> pageFromIndex(Set<Long> ids, String primaryField, boolean ascending,
+            Comparator<Product> primary, Comparator<Product> secondary, long offset, int size, Product after) {
+        Stream<Product> ordered;
+        if (after == null) {
+            ordered = repository.streamSortedBy(primaryField, ascending);
+        } else if (secondary == null) {
+            ordered = repository.streamSortedFrom(primaryField, ascending, after, false);
+        } else {
+            // Re-read the cursor's whole primary run: its secondary order differs from index order
+            ordered = repository.streamSortedFrom(primaryField, ascending, ProductCursor.runStart(after, primaryField), true);
+        }
+        if (ids != null) {
+            ordered = ordered.filter(p -> ids.contains(p.getId()));
+        }
+
+        if (secondary == null) {
+            return ordered.skip(offset).limit(size).toList();
+        }
+        return pageByRuns(ordered.iterator(), primary, secondary, offset, size, after);
+    }
+
+    /**
+     * Cuts a page out of products that are already ordered by the primary
+     * comparator, ordering each run of equal primary keys by the secondary one.
+     * When resuming from a cursor, rows of the cursor's run at or before it are dropped.
+     */
+    private List<Product> pageByRuns(Iterator<Product> ordered, Comparator<Product> primary,
+            Comparator<Product> secondary, long offset, int size, Product after) {
+        Comparator<Product> withinRun = secondary.thenComparing(Product::getId);
+        List<Product> page = new ArrayList<>(size);
+        List<Product> run = new ArrayList<>();
+        Product pending = ordered.hasNext() ? ordered.next() : null;
+        long toSkip = offset;
+
+        while (pending != null && page.size() < size) {
+            run.clear();
+            run.add(pending);
+            pending = null;
+            while (ordered.hasNext()) {
+                Product next = ordered.next();
+                if (primary.compare(run.get(0), next) != 0) {
+                    pending = next;
+                    break;
+                }
+                run.add(next);
+            }
+
+            if (after != null && primary.compare(run.get(0), after) == 0) {
+                Product cursorRow = after;
+                run.removeIf(p -> withinRun.compare(p, cursorRow) <= 0);
+            }
+            after = null;
 
-        if (fromIndex > allProducts.size()) {
-            return new PageResponse<>(List.of(), page, size, allProducts.size());
+            if (run.size() <= toSkip) {
+                toSkip -= run.size();
+                continue;
+            }
+            int from = (int) toSkip;
+            int to = Math.min(run.size(), from + size - page.size());
+            page.addAll(smallest(run, withinRun, to).subList(from, to));
+            toSkip = 0;
         }
+        return page;
+    }
 
-        List<Product> paginatedList = allProducts.subList(fromIndex, toIndex);
+    /**
+     * Top-K selection: returns the k smallest products in order, using a
+     * bounded max-heap instead of sorting the whole list.
+     */
+    private static List<Product> smallest(List<Product> products, Comparator<Product> comparator, int k) {
+        if (k >= products.size()) {
+            List<Product> sorted = new ArrayList<>(products);
+            sorted.sort(comparator);
+            return sorted;
+        }
+        PriorityQueue<Product> heap = new PriorityQueue<>(k + 1, comparator.reversed());
+        for (Product product : products) {
+            heap.offer(product);
+            if (heap.size() > k) {
+                heap.poll();
+            }
+        }
+        List<Product> result = new ArrayList<>(heap);
+        result.sort(comparator);
+        return result;
+    }
 
-        return new PageResponse<>(paginatedList, page, size, allProducts.size());
+    private static boolean isAscending(String direction) {
+        return direction == null || direction.equalsIgnoreCase("asc");
     }
 
     /**
@@ -141,7 +674,7 @@ public class ProductService {
      * @return A Comparator for the Product class.
      */
     private Comparator<Product> getComparator(String field, String direction) {
-        boolean asc = direction == null || direction.equalsIgnoreCase("asc");
+        boolean asc = isAscending(direction);
 
         Comparator<Product> comparator = switch (field) {
             case "name" -> Comparator.comparing(Product::getName, String.CASE_INSENSITIVE_ORDER);
@@ -155,33 +688,28 @@ public class ProductService {
         return asc ? comparator : comparator.reversed();
     }
 
+    /**
+     * @return A future completing once queries no longer wait for the
+     *         repository to index a restored snapshot.
+     */
+    public CompletableFuture<Void> indexesReady() {
+        return repository.indexesReady();
+    }
+
     /**
      * Retrieves inventory metrics grouped by product category.
      * @return List of InventoryMetric objects containing metrics for each category.
      */
     public List<InventoryMetric> getInventoryMetrics() {
-        Map<String, List<Product>> grouped = repository.findAll().stream()
-            .filter(p -> !p.isOutOfStock())
-            .collect(Collectors.groupingBy(Product::getCategory));
-
-        List<InventoryMetric> metrics = new ArrayList<>();
+        // Per-category totals are kept up to date by the repository on every write
+        List<InventoryMetric> metrics = new ArrayList<>(repository.findCategoryMetrics());
 
         int overallTotalProducts = 0;
         double overallTotalValue = 0;
 
-        for (Map.Entry<String, List<Product>> entry : grouped.entrySet()) {
-            String category = entry.getKey();
-            List<Product> products = entry.getValue();
-
-            int totalQty = products.stream().mapToInt(Product::getStockQuantity).sum();
-            double totalValue = products.stream()
-                .mapToDouble(p -> p.getUnitPrice() * p.getStockQuantity()).sum();
-            double avgPrice = totalQty == 0 ? 0 : totalValue / totalQty;
-
-            metrics.add(new InventoryMetric(category, totalQty, totalValue, avgPrice));
-
-            overallTotalProducts += totalQty;
-            overallTotalValue += totalValue;
+        for (InventoryMetric metric : metrics) {
+            overallTotalProducts += metric.getTotalProducts();
+            overallTotalValue += metric.getTotalValue();
         }
 
         // Adding overall metrics
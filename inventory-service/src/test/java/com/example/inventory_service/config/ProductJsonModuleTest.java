@@ -0,0 +1,92 @@
+package com.example.inventory_service.config;
+
+import com.example.inventory_service.dto.PageResponse;
+import com.example.inventory_service.model.Product;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductJsonModuleTest {
+
+    // Configured like Boot's mapper, once without and once with the module
+    private final ObjectMapper plain = mapper(false);
+    private final ObjectMapper fragments = mapper(true);
+
+    private static ObjectMapper mapper(boolean withFragments) {
+        JsonMapper.Builder builder = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if (withFragments) {
+            builder.addModule(new ProductJsonModule());
+        }
+        return builder.build();
+    }
+
+    private static Product product(long id, String name, int stock) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setCategory("Lácteos");
+        product.setUnitPrice(19.99);
+        product.setStockQuantity(stock);
+        product.setExpirationDate(LocalDate.of(2030, 1, 31));
+        product.setCreationDate(LocalDate.of(2025, 6, 1));
+        product.setVersion(3);
+        return product;
+    }
+
+    private static Product frozen(long id, String name, int stock) {
+        Product product = product(id, name, stock);
+        product.freeze();
+        return product;
+    }
+
+    @Test
+    public void fragmentsAreByteIdenticalToJacksonOutput() throws Exception {
+        List<Product> products = List.of(frozen(1, "Leche \"entera\" ñ ✓", 5), frozen(2, "Queso", 0), frozen(3, "Yogur\n", 2));
+        PageResponse<Product> page = new PageResponse<>(products, 0, 3, 7, "cursor");
+
+        byte[] expectedList = plain.writeValueAsBytes(products);
+        byte[] expectedPage = plain.writeValueAsBytes(page);
+        // The first pass writes the fragments, the second only copies them
+        for (int pass = 0; pass < 2; pass++) {
+            assertArrayEquals(expectedList, fragments.writeValueAsBytes(products));
+            assertArrayEquals(expectedPage, fragments.writeValueAsBytes(page));
+            assertArrayEquals(plain.writeValueAsBytes(products.get(0)), fragments.writeValueAsBytes(products.get(0)));
+        }
+        for (Product product : products) {
+            assertArrayEquals(plain.writeValueAsBytes(product), product.cachedJson());
+        }
+    }
+
+    @Test
+    public void otherWritersIgnoreFragments() throws Exception {
+        Product product = frozen(1, "Leche", 5);
+        fragments.writeValueAsBytes(product);
+        assertNotNull(product.cachedJson());
+
+        assertEquals(plain.writerWithDefaultPrettyPrinter().writeValueAsString(List.of(product)),
+            fragments.writerWithDefaultPrettyPrinter().writeValueAsString(List.of(product)));
+        assertEquals(plain.writeValueAsString(product), fragments.writeValueAsString(product));
+        assertEquals(plain.valueToTree(product), fragments.valueToTree(product));
+    }
+
+    @Test
+    public void mutableProductsAreNeverCached() throws Exception {
+        Product product = product(1, "Leche", 5);
+        fragments.writeValueAsBytes(product);
+        assertNull(product.cachedJson());
+
+        product.setStockQuantity(0);
+        assertArrayEquals(plain.writeValueAsBytes(product), fragments.writeValueAsBytes(product));
+    }
+}
@@ -1,32 +1,77 @@
 package com.example.inventory_service.controller;
 
+import com.example.inventory_service.dto.BatchOperation;
+import com.example.inventory_service.dto.BatchResult;
+import com.example.inventory_service.dto.ImportSummary;
+import com.example.inventory_service.dto.PageResponse;
+import com.example.inventory_service.exception.VersionConflictException;
 import com.example.inventory_service.model.Product;
+import com.example.inventory_service.repository.InMemoryProductRepository;
+import com.example.inventory_service.service.BatchItem;
+import com.example.inventory_service.service.ImportRow;
+import com.example.inventory_service.service.ProductChangeFeed;
+import com.example.inventory_service.service.ProductResponseCache;
 import com.example.inventory_service.service.ProductService;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
 
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 
 @WebMvcTest(ProductController.class)
+@Import(ProductControllerTest.RepositoryConfig.class)
 public class ProductControllerTest {
 
+    // The change feed and response cache are real, fed by their own repository
+    @TestConfiguration
+    static class RepositoryConfig {
+        @Bean
+        InMemoryProductRepository changeRepository() {
+            return new InMemoryProductRepository();
+        }
+
+        @Bean
+        ProductChangeFeed changeFeed(InMemoryProductRepository changeRepository) {
+            return new ProductChangeFeed(changeRepository);
+        }
+
+        @Bean
+        ProductResponseCache responseCache(InMemoryProductRepository changeRepository, ObjectMapper objectMapper) {
+            return new ProductResponseCache(changeRepository, objectMapper, 1 << 20, new SimpleMeterRegistry());
+        }
+    }
+
     // MockMvc is used to simulate HTTP requests in tests
     @Autowired
     private MockMvc mockMvc;
@@ -35,11 +80,16 @@ public class ProductControllerTest {
     @MockBean
     private ProductService productService; 
 
+    @Autowired
+    private InMemoryProductRepository changeRepository;
+
     private Product product;
 
     // This method runs before each test to set up the initial state of the product
     @BeforeEach
     public void setUp() {
+        // Every test stubs the service afresh; moving the generation on drops bodies cached by another test
+        changeRepository.clear();
         product = new Product();
         product.setId(1L);
         product.setName("Leche");
@@ -62,6 +112,19 @@ public class ProductControllerTest {
             .andExpect(jsonPath("$.category").value("Lácteos"));
     }
 
+    @Test
+    public void testCreateProductRejectsDatesTheStoresCannotKeep() throws Exception {
+        String body = "{\"name\":\"Miel\",\"category\":\"Despensa\",\"unitPrice\":5.0,\"stockQuantity\":3,"
+            + "\"expirationDate\":\"+6000000-01-01\"}";
+
+        mockMvc.perform(post("/products")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.expirationDate").value("Product expiration date is too far in the future"));
+        verify(productService, never()).createProduct(any(Product.class));
+    }
+
     // Test to verify that the controller returns a product by its ID
     @Test
     public void testGetAllProducts() throws Exception {
@@ -73,6 +136,274 @@ public class ProductControllerTest {
             .andExpect(jsonPath("$[0].name").value("Leche"));
     }
 
+    @Test
+    public void getAllProductsServesCachedFragment() throws Exception {
+        // Stored products are frozen, so the response keeps their serialized JSON
+        product.freeze();
+        given(productService.getAllProducts()).willReturn(List.of(product));
+
+        mockMvc.perform(get("/products"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].name").value("Leche"))
+            .andExpect(jsonPath("$[0].outOfStock").value(false));
+        byte[] fragment = product.cachedJson();
+        assertNotNull(fragment);
+
+        // A later list embeds the kept fragment rather than serializing the product again
+        changeRepository.clear();
+        mockMvc.perform(get("/products"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].name").value("Leche"));
+        assertTrue(fragment == product.cachedJson(), "The fragment is reused");
+    }
+
+    @Test
+    public void testCatalogReadsAreCachedUntilAWrite() throws Exception {
+        given(productService.getAllProducts()).willReturn(List.of(product));
+
+        String etag = mockMvc.perform(get("/products"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/products"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", etag))
+            .andExpect(jsonPath("$[0].name").value("Leche"));
+        mockMvc.perform(get("/products").header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+        verify(productService, times(1)).getAllProducts();
+
+        Product other = new Product();
+        other.setName("Galletas");
+        other.setCategory("Dulces");
+        changeRepository.save(other);
+
+        mockMvc.perform(get("/products").header("If-None-Match", etag))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].name").value("Leche"));
+        verify(productService, times(2)).getAllProducts();
+    }
+
+    // Test to verify that a cursor is passed through and the next one is returned
+    @Test
+    public void testGetPaginatedProductsWithCursor() throws Exception {
+        given(productService.queryProducts(null, null, null, 0, 1, "name", "asc", null, null, "abc"))
+            .willReturn(new PageResponse<>(List.of(product), 0, 1, 3, "def"));
+
+        mockMvc.perform(get("/products/paginated")
+                .param("size", "1")
+                .param("sortBy1", "name")
+                .param("direction1", "asc")
+                .param("cursor", "abc"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.content[0].name").value("Leche"))
+            .andExpect(jsonPath("$.nextCursor").value("def"));
+    }
+
+    // Test to verify that filters on the paginated endpoint reach the query pipeline
+    @Test
+    public void testGetPaginatedProductsWithFilters() throws Exception {
+        given(productService.queryProducts("le", List.of("Lácteos"), true, 2, 5, null, null, null, null, null))
+            .willReturn(new PageResponse<>(List.of(product), 2, 5, 11));
+
+        mockMvc.perform(get("/products/paginated")
+                .param("page", "2")
+                .param("size", "5")
+                .param("name", "le")
+                .param("category", "Lácteos")
+                .param("inStock", "true"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.totalElements").value(11))
+            .andExpect(jsonPath("$.totalPages").value(3));
+    }
+
+    @Test
+    public void testConditionalUpdateUsesEtags() throws Exception {
+        product.setVersion(4);
+        given(productService.getProduct(1L)).willReturn(product);
+        given(productService.updateProduct(eq(1L), any(Product.class), eq(4L))).willAnswer(invocation -> {
+            Product updated = invocation.getArgument(1);
+            updated.setId(1L);
+            updated.setVersion(5);
+            return updated;
+        });
+        given(productService.updateProduct(eq(1L), any(Product.class), eq(3L)))
+            .willThrow(new VersionConflictException("Product with ID 1 is at version 4, not 3."));
+        String body = asJsonString(product);
+
+        mockMvc.perform(get("/products/1"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"4\""));
+        mockMvc.perform(put("/products/1")
+                .header("If-Match", "\"4\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"5\""));
+        mockMvc.perform(put("/products/1")
+                .header("If-Match", "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+            .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    public void testAdjustStock() throws Exception {
+        product.setStockQuantity(2);
+        given(productService.adjustStock(1L, -3)).willReturn(product);
+        given(productService.adjustStock(1L, -9)).willThrow(new IllegalArgumentException("Insufficient stock"));
+
+        mockMvc.perform(patch("/products/1/stock")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("-3"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.stockQuantity").value(2));
+        mockMvc.perform(patch("/products/1/stock")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("-9"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testApplyBatchFromNdjson() throws Exception {
+        List<BatchItem> received = new ArrayList<>();
+        given(productService.applyBatchItems(any())).willAnswer(invocation -> {
+            Iterator<BatchItem> items = invocation.getArgument(0);
+            items.forEachRemaining(received::add);
+            return List.of(new BatchResult(0, "create", 201, 1L, null), new BatchResult(1, "delete", 404, 7L, "Product with ID 7 not found"));
+        });
+
+        String body = asJsonString(new BatchOperation("create", null, product)) + "\n"
+            + "{\"op\":\"delete\",\"id\":7}\n";
+        mockMvc.perform(post("/products/batch")
+                .contentType("application/x-ndjson")
+                .content(body))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].status").value(201))
+            .andExpect(jsonPath("$[1].status").value(404));
+
+        assertEquals(2, received.size());
+        assertEquals("create", received.get(0).operation().getOp());
+        assertEquals("Leche", received.get(0).operation().getProduct().getName());
+        assertEquals(7L, received.get(1).operation().getId());
+    }
+
+    @Test
+    public void testApplyBatchRejectsMalformedNdjsonLinesOnly() throws Exception {
+        List<BatchItem> received = new ArrayList<>();
+        given(productService.applyBatchItems(any())).willAnswer(invocation -> {
+            Iterator<BatchItem> items = invocation.getArgument(0);
+            items.forEachRemaining(received::add);
+            return List.of();
+        });
+
+        mockMvc.perform(post("/products/batch")
+                .contentType("application/x-ndjson")
+                .content("{\"op\":\"delete\",\"id\":7}\n\n{not json"))
+            .andExpect(status().isOk());
+
+        assertEquals(2, received.size());
+        assertEquals(7L, received.get(0).operation().getId());
+        assertNull(received.get(1).operation());
+        assertEquals("Invalid JSON on line 3.", received.get(1).error());
+    }
+
+    @Test
+    public void testImportNdjsonRejectsMalformedLinesOnly() throws Exception {
+        List<ImportRow> received = new ArrayList<>();
+        given(productService.importProducts(any())).willAnswer(invocation -> {
+            Iterator<ImportRow> rows = invocation.getArgument(0);
+            rows.forEachRemaining(received::add);
+            return new ImportSummary(received.size(), 2, 1, List.of(new ImportSummary.RejectedRow(3, "Invalid JSON.")));
+        });
+
+        mockMvc.perform(post("/products/import")
+                .contentType("application/x-ndjson")
+                .content("{\"name\":\"Leche\",\"category\":\"Lácteos\",\"unitPrice\":20,\"stockQuantity\":5}\n"
+                    + "\n"
+                    + "{\"name\":\n"
+                    + "{\"name\":\"Pan\",\"category\":\"Panadería\",\"unitPrice\":10,\"stockQuantity\":1}\n"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.rows").value(3))
+            .andExpect(jsonPath("$.rejectedRows[0].line").value(3));
+
+        assertEquals(List.of(1L, 3L, 4L), received.stream().map(ImportRow::line).toList());
+        assertEquals("Leche", received.get(0).product().getName());
+        assertEquals("Invalid JSON.", received.get(1).error());
+        assertEquals("Pan", received.get(2).product().getName());
+    }
+
+    @Test
+    public void testExportCsvEscapesFields() throws Exception {
+        product.setName("Leche \"entera\", 1L");
+        product.setCreationDate(LocalDate.of(2025, 1, 2));
+        given(productService.streamProducts(null, List.of("Lácteos"), null)).willReturn(Stream.of(product));
+
+        MvcResult result = mockMvc.perform(get("/products/export")
+                .param("format", "csv")
+                .param("category", "Lácteos"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Disposition", "attachment; filename=\"products.csv\""))
+            .andExpect(content().string(
+                "id,name,category,unitPrice,stockQuantity,expirationDate,creationDate,lastUpdatedDate\n"
+                + "1,\"Leche \"\"entera\"\", 1L\",Lácteos,20.0,5," + product.getExpirationDate() + ",2025-01-02,\n"));
+    }
+
+    @Test
+    public void testExportNdjsonWritesOneProductPerLine() throws Exception {
+        Product other = new Product();
+        other.setId(2L);
+        other.setName("Pan");
+        given(productService.streamProducts("a", null, true)).willReturn(Stream.of(product, other));
+
+        MvcResult result = mockMvc.perform(get("/products/export")
+                .param("name", "a")
+                .param("inStock", "true"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/x-ndjson"))
+            .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"name\":\"Leche\""), lines[0]);
+        assertTrue(lines[1].contains("\"id\":2"), lines[1]);
+    }
+
+    @Test
+    public void testChangeStreamSendsEventsForRepositoryWrites() throws Exception {
+        MvcResult result = mockMvc.perform(get("/products/changes"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        Product bread = new Product();
+        bread.setName("Pan");
+        bread.setCategory("Panadería");
+        bread.setUnitPrice(2.5);
+        bread.setStockQuantity(4);
+        changeRepository.save(bread);
+
+        // Events are delivered asynchronously
+        String body = "";
+        for (int i = 0; i < 100 && !body.contains("event:metrics"); i++) {
+            Thread.sleep(20);
+            body = result.getResponse().getContentAsString(StandardCharsets.UTF_8);
+        }
+        assertTrue(body.contains("event:created\ndata:{\"id\":" + bread.getId()), body);
+        assertTrue(body.contains("event:metrics\ndata:[{\"category\":\"Panadería\",\"totalProducts\":4,\"totalValue\":10.0}]"), body);
+    }
+
+    @Test
+    public void testExportRejectsUnknownFormat() throws Exception {
+        mockMvc.perform(get("/products/export").param("format", "xml"))
+            .andExpect(status().isBadRequest());
+    }
+
     // Utility to convert object to JSON
 
     // This method converts an object to a JSON string using Jackson's ObjectMapper
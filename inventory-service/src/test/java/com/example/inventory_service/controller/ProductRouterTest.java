@@ -0,0 +1,211 @@
+package com.example.inventory_service.controller;
+
+import com.example.inventory_service.dto.PageResponse;
+import com.example.inventory_service.model.Product;
+import com.example.inventory_service.service.ProductChangeFeed;
+import com.example.inventory_service.service.ProductService;
+
+import jakarta.validation.Validator;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import reactor.core.Disposable;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+public class ProductRouterTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private ProductChangeFeed changeFeed;
+
+    @Autowired
+    private Validator validator;
+
+    private static Product product(String name, String category, int stock) {
+        Product product = new Product();
+        product.setName(name);
+        product.setCategory(category);
+        product.setUnitPrice(10.0);
+        product.setStockQuantity(stock);
+        product.setExpirationDate(LocalDate.now().plusDays(5));
+        return product;
+    }
+
+    private Product create(Product product) {
+        return client.post().uri("/products")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(product)
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody(Product.class)
+            .returnResult().getResponseBody();
+    }
+
+    @Test
+    public void testReactiveProfileReplacesTheServletController() {
+        assertTrue(context.getBeansOfType(ProductController.class).isEmpty());
+        assertEquals(1, context.getBeansOfType(ProductHandler.class).size());
+    }
+
+    @Test
+    public void testListsPagesAndMetricsKeepTheServletContracts() {
+        Product milk = create(product("Reactive Milk", "Reactive Fresh", 5));
+        create(product("Reactive Cheese", "Reactive Fresh", 0));
+
+        List<Product> inStock = client.get().uri("/products?category=Reactive Fresh&inStock=true")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBodyList(Product.class)
+            .returnResult().getResponseBody();
+        assertEquals(List.of(milk.getId()), inStock.stream().map(Product::getId).toList());
+
+        List<Product> streamed = client.get().uri("/products?category=Reactive Fresh")
+            .accept(MediaType.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+            .returnResult(Product.class)
+            .getResponseBody().collectList().block();
+        assertEquals(2, streamed.size());
+
+        client.get().uri("/products/paginated?size=1&sortBy1=name&direction1=asc&category=Reactive Fresh")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.content[0].name").isEqualTo("Reactive Cheese")
+            .jsonPath("$.totalElements").isEqualTo(2)
+            .jsonPath("$.nextCursor").isNotEmpty();
+
+        client.get().uri("/products/metrics")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$[?(@.category == 'Reactive Fresh')].totalProducts").isEqualTo(5);
+    }
+
+    @Test
+    public void testWritesAndErrorsMatchTheServletApi() {
+        Product created = create(product("Reactive Yogurt", "Reactive Dairy", 3));
+        String etag = "\"" + created.getVersion() + "\"";
+
+        client.get().uri("/products/{id}", created.getId())
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().valueEquals(HttpHeaders.ETAG, etag);
+
+        client.patch().uri("/products/{id}/stock", created.getId())
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(2)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.stockQuantity").isEqualTo(5);
+
+        // The stock adjustment bumped the version, so the stale ETag no longer matches
+        client.put().uri("/products/{id}", created.getId())
+            .header(HttpHeaders.IF_MATCH, etag)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(product("Reactive Yogurt", "Reactive Dairy", 1))
+            .exchange()
+            .expectStatus().isEqualTo(412);
+
+        client.post().uri("/products")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(product("", "Reactive Dairy", 1))
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody().jsonPath("$.name").exists();
+
+        client.get().uri("/products/paginated")
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody().jsonPath("$.error").exists();
+
+        client.delete().uri("/products/{id}", created.getId())
+            .exchange()
+            .expectStatus().isNoContent();
+
+        client.get().uri("/products/{id}", created.getId())
+            .exchange()
+            .expectStatus().isNotFound()
+            .expectBody().jsonPath("$.error").isEqualTo("Not Found");
+    }
+
+    @Test
+    public void testQueriesWaitForTheIndexesWithoutBlocking() {
+        ProductService service = mock(ProductService.class);
+        CompletableFuture<Void> indexes = new CompletableFuture<>();
+        when(service.indexesReady()).thenReturn(indexes);
+        when(service.queryProducts(null, null, null, 0, 5, null, null, null, null, null))
+            .thenReturn(new PageResponse<>(List.of(), 0, 5, 0));
+        ProductHandler handler = new ProductHandler(service, changeFeed, validator);
+        MockServerRequest request = MockServerRequest.builder().queryParam("size", "5").build();
+
+        // Subscribing returns at once instead of holding the calling thread
+        CompletableFuture<ServerResponse> page = handler.getPaginatedProducts(request).toFuture();
+        assertFalse(page.isDone());
+        verify(service, never()).queryProducts(null, null, null, 0, 5, null, null, null, null, null);
+
+        Disposable cancelled = handler.getProducts(request).subscribe();
+        cancelled.dispose();
+        assertFalse(indexes.isCancelled(), "A cancelled request leaves the shared future alone");
+
+        indexes.complete(null);
+        assertEquals(200, page.join().statusCode().value());
+        verify(service).queryProducts(null, null, null, 0, 5, null, null, null, null, null);
+    }
+
+    @Test
+    public void testChangeStreamDeliversWrites() {
+        // The response starts with the first event, so the write happens off the test thread
+        CompletableFuture.runAsync(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            create(product("Reactive Butter", "Reactive Spreads", 2));
+        });
+
+        ServerSentEvent<String> first = client.get().uri("/products/changes")
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+            .getResponseBody()
+            .blockFirst(Duration.ofSeconds(10));
+
+        assertEquals("created", first.event());
+        assertTrue(first.data().contains("Reactive Butter"), first.data());
+    }
+}
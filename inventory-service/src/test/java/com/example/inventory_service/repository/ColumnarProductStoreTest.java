@@ -0,0 +1,150 @@
+package com.example.inventory_service.repository;
+
+import com.example.inventory_service.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarProductStoreTest {
+
+    private static Product product(long id, int version) {
+        Product p = new Product();
+        p.setId(id);
+        p.setName("Product " + id + " v" + version);
+        p.setCategory(version % 2 == 0 ? "Even" : "Odd");
+        p.setUnitPrice(version * 0.5);
+        p.setStockQuantity(version);
+        p.setExpirationDate(LocalDate.ofEpochDay(version));
+        return p;
+    }
+
+    @Test
+    void storesEveryField() {
+        ProductStore store = ProductStore.columnar();
+        Product p = product(7, 3);
+        p.setCreationDate(LocalDate.of(2025, 1, 2));
+        store.put(p);
+        Product unset = new Product();
+        unset.setId(8L);
+        store.put(unset);
+
+        Product read = store.get(7);
+        assertNotSame(p, read, "Reads materialize a new Product");
+        assertEquals(p.getName(), read.getName());
+        assertEquals("Odd", read.getCategory());
+        assertEquals(1.5, read.getUnitPrice());
+        assertEquals(3, read.getStockQuantity());
+        assertEquals(LocalDate.ofEpochDay(3), read.getExpirationDate());
+        assertEquals(LocalDate.of(2025, 1, 2), read.getCreationDate());
+        assertNull(read.getLastUpdatedDate());
+
+        Product empty = store.get(8);
+        assertNull(empty.getName());
+        assertNull(empty.getCategory());
+        assertNull(empty.getExpirationDate());
+        assertNull(store.get(9));
+    }
+
+    @Test
+    void matchesAMapUnderRandomWrites() {
+        ProductStore store = ProductStore.columnar();
+        Map<Long, Product> reference = new HashMap<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 20_000; i++) {
+            long id = random.nextInt(3_000);
+            if (random.nextInt(3) == 0) {
+                Product removed = store.remove(id);
+                Product expected = reference.remove(id);
+                assertEquals(expected == null, removed == null);
+            } else {
+                Product p = product(id, i);
+                Product previous = store.put(p);
+                Product expected = reference.put(id, p);
+                assertEquals(expected != null ? expected.getName() : null, previous != null ? previous.getName() : null);
+            }
+        }
+
+        assertEquals(reference.size(), store.size());
+        for (long id = 0; id < 3_000; id++) {
+            Product expected = reference.get(id);
+            Product actual = store.get(id);
+            assertEquals(expected != null ? expected.getName() : null, actual != null ? actual.getName() : null);
+            assertEquals(expected != null, store.contains(id));
+        }
+        Set<String> names = store.values().stream().map(Product::getName).collect(Collectors.toSet());
+        assertEquals(reference.values().stream().map(Product::getName).collect(Collectors.toSet()), names);
+
+        store.clear();
+        assertEquals(0, store.size());
+        assertTrue(store.values().isEmpty());
+    }
+
+    @Test
+    void concurrentReadsNeverSeeTornRows() throws Exception {
+        ProductStore store = ProductStore.columnar();
+        for (long id = 0; id < 64; id++) {
+            store.put(product(id, 0));
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> readers = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            readers.add(executor.submit(() -> {
+                Random random = new Random();
+                while (running.get()) {
+                    long id = random.nextInt(64);
+                    Product p = store.get(id);
+                    // Every field is derived from the same version, so a mix of two writes shows up here
+                    int version = p.getStockQuantity();
+                    assertEquals("Product " + id + " v" + version, p.getName());
+                    assertEquals(version * 0.5, p.getUnitPrice());
+                    assertEquals(LocalDate.ofEpochDay(version), p.getExpirationDate());
+                }
+                return null;
+            }));
+        }
+        Future<?> writer = executor.submit(() -> {
+            Random random = new Random(5);
+            for (int i = 1; i < 200_000; i++) {
+                store.put(product(random.nextInt(64), i));
+            }
+        });
+
+        writer.get(30, TimeUnit.SECONDS);
+        running.set(false);
+        for (Future<?> reader : readers) {
+            reader.get(5, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    void repositoryIndexesWorkOnColumnarStore() {
+        InMemoryProductRepository repository = new InMemoryProductRepository(ProductPersistence.none(), ProductStore.columnar());
+        for (int i = 1; i <= 50; i++) {
+            Product p = product(0, i);
+            p.setId(null);
+            p.setName("Item " + i);
+            repository.save(p);
+        }
+        repository.deleteById(10L);
+
+        assertEquals(49, repository.count());
+        assertTrue(repository.existsByName("item 20"));
+        assertFalse(repository.existsByName("item 10"));
+        assertEquals(Set.of(11L, 12L, 13L, 14L, 15L, 16L, 17L, 18L, 19L, 1L),
+            repository.findIdsByNameContaining("item 1"));
+        assertEquals(List.of(50L, 49L, 48L),
+            repository.streamSortedBy("unitPrice", false).limit(3).map(Product::getId).toList());
+        assertEquals(24, repository.findIdsByCategories(List.of("even")).size());
+    }
+}
@@ -1,9 +1,31 @@
 package com.example.inventory_service.repository;
 
+import com.example.inventory_service.exception.VersionConflictException;
+import com.example.inventory_service.model.InventoryMetric;
 import com.example.inventory_service.model.Product;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class InMemoryProductRepositoryTest {
@@ -124,4 +146,465 @@ public class InMemoryProductRepositoryTest {
         assertTrue(all.contains(p), "findAll should contain first product");
         assertTrue(all.contains(p2), "findAll should contain second product");
     }
+
+    @Test
+    void concurrentWritesAreNotLost() throws Exception {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        int perThread = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch start = new CountDownLatch(1);
+
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        Product p = new Product();
+                        p.setName("Product " + thread + "-" + i);
+                        p.setCategory("Category " + (i % 5));
+                        p.setStockQuantity(i);
+                        Product saved = repository.save(p);
+                        if (i % 3 == 0) {
+                            repository.deleteById(saved.getId());
+                        }
+                    }
+                    return null;
+                }));
+            }
+            // A reader iterating while writers run must never see a ConcurrentModificationException
+            Future<?> reader = executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 200; i++) {
+                    repository.findAll().forEach(Product::getName);
+                }
+                return null;
+            });
+
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get(30, TimeUnit.SECONDS);
+            }
+            reader.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int deletedPerThread = (perThread + 2) / 3;
+        List<Product> all = repository.findAll();
+        assertEquals(threads * (perThread - deletedPerThread), all.size(), "No write should be lost");
+
+        Set<Long> ids = new HashSet<>();
+        all.forEach(p -> ids.add(p.getId()));
+        assertEquals(all.size(), ids.size(), "Every product should have a distinct ID");
+    }
+
+    @Test
+    void findAllSharesOneFrozenViewUntilTheNextWrite() {
+        Product p = new Product();
+        p.setName("Shared view");
+        p.setCategory("Category A");
+        Product saved = repository.save(p);
+
+        List<Product> first = repository.findAll();
+        assertSame(first, repository.findAll(), "An unchanged catalog is not copied again");
+        assertThrows(UnsupportedOperationException.class, () -> first.add(new Product()));
+        assertThrows(IllegalStateException.class, () -> saved.setStockQuantity(5), "Stored products are read-only");
+        assertThrows(IllegalStateException.class, () -> repository.findById(saved.getId()).setName("Changed"));
+
+        Product other = new Product();
+        other.setName("Other");
+        other.setCategory("Category B");
+        repository.save(other);
+        List<Product> second = repository.findAll();
+        assertNotSame(first, second);
+        assertEquals(1, first.size(), "A published view never changes");
+        assertEquals(2, second.size());
+    }
+
+    @Test
+    void findAllDoesNotWaitForABatchInProgress() throws Exception {
+        Product p = new Product();
+        p.setName("Before");
+        p.setCategory("Category A");
+        repository.save(p);
+
+        CountDownLatch applied = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> batch = executor.submit(() -> repository.writeBatch(writes -> {
+            Product inBatch = new Product();
+            inBatch.setName("In batch");
+            inBatch.setCategory("Category A");
+            writes.save(inBatch);
+            applied.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        try {
+            assertTrue(applied.await(5, TimeUnit.SECONDS));
+            // The batch holds the exclusive lock until it is released
+            List<Product> listed = assertTimeoutPreemptively(Duration.ofSeconds(5), repository::findAll);
+            assertEquals(1, listed.size(), "Staged items are not visible before the batch is durable");
+        } finally {
+            release.countDown();
+            batch.get(5, TimeUnit.SECONDS);
+            executor.shutdown();
+        }
+        assertEquals(2, repository.findAll().size());
+    }
+
+    @Test
+    void readersNeverSeeABatchThatCannotBeLogged() throws Exception {
+        PendingAppends persistence = new PendingAppends();
+        repository = new InMemoryProductRepository(persistence);
+        Product apple = new Product();
+        apple.setName("Apple");
+        apple.setCategory("Fruit");
+        apple.setStockQuantity(5);
+        repository.save(apple);
+        long generation = repository.generation();
+
+        // Renames the apple and gives its old name to a new product
+        Consumer<InMemoryProductRepository.WriteBatch> work = writes -> {
+            Product renamed = new Product();
+            renamed.setId(apple.getId());
+            renamed.setName("Green apple");
+            renamed.setCategory("Fruit");
+            writes.save(renamed);
+            assertSame(renamed, writes.findById(apple.getId()), "Later items see earlier ones");
+            Product bread = new Product();
+            bread.setName("Apple");
+            bread.setCategory("Bakery");
+            bread.setStockQuantity(2);
+            writes.save(bread);
+        };
+
+        CompletableFuture<Void> append = persistence.holdNextAppend();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> batch = executor.submit(() -> repository.writeBatch(work));
+        try {
+            assertTrue(persistence.appending.await(5, TimeUnit.SECONDS));
+            assertUnchanged(apple, generation);
+        } finally {
+            append.completeExceptionally(new IOException("Disk full"));
+            ExecutionException failed = assertThrows(ExecutionException.class, () -> batch.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(UncheckedIOException.class, failed.getCause());
+            executor.shutdown();
+        }
+        assertUnchanged(apple, generation);
+
+        persistence.releaseAppends();
+        repository.writeBatch(work);
+        assertEquals("Green apple", repository.findById(apple.getId()).getName());
+        assertEquals(2, repository.count());
+        assertTrue(repository.existsByName("Apple"), "The new product took over the name");
+    }
+
+    private void assertUnchanged(Product apple, long generation) {
+        assertEquals(generation, repository.generation());
+        assertSame(apple, repository.findById(apple.getId()));
+        assertEquals(List.of(apple), repository.findAll());
+        assertEquals(List.of(apple), repository.streamSortedBy("name", true).toList());
+        assertEquals(Set.of(apple.getId()), repository.findIdsByStock(true));
+        assertTrue(repository.findIdsByCategories(List.of("Bakery")).isEmpty());
+        assertFalse(repository.existsByName("Green apple"));
+    }
+
+    /** Persistence that makes appends durable at once, or when the test says so. */
+    private static class PendingAppends implements ProductPersistence {
+        private static final Record RECORD = new Record() { };
+
+        final CountDownLatch appending = new CountDownLatch(1);
+        private volatile CompletableFuture<Void> held;
+
+        CompletableFuture<Void> holdNextAppend() {
+            held = new CompletableFuture<>();
+            return held;
+        }
+
+        void releaseAppends() {
+            held = null;
+        }
+
+        @Override
+        public void recover(Replay replay) {
+        }
+
+        @Override
+        public Record encodeSave(Product product) {
+            return RECORD;
+        }
+
+        @Override
+        public Record encodeDelete(long id) {
+            return RECORD;
+        }
+
+        @Override
+        public Record encodeClear() {
+            return RECORD;
+        }
+
+        @Override
+        public CompletableFuture<Void> append(List<Record> records) {
+            if (held == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            appending.countDown();
+            return held;
+        }
+
+        @Override
+        public long rotate() {
+            return 0;
+        }
+
+        @Override
+        public void writeSnapshot(long segment, long nextId, Collection<Product> products) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    void saveRejectsDuplicateNameIgnoringCase() {
+        Product p = new Product();
+        p.setName("Test Product");
+        p.setCategory("Category A");
+        repository.save(p);
+
+        Product duplicate = new Product();
+        duplicate.setName("TEST product");
+        duplicate.setCategory("Category B");
+
+        assertThrows(IllegalArgumentException.class, () -> repository.save(duplicate));
+        assertEquals(1, repository.findAll().size(), "Duplicate should not be stored");
+        assertTrue(repository.existsByName("test PRODUCT"), "Name lookup should ignore case");
+    }
+
+    @Test
+    void renameAndDeleteReleaseName() {
+        Product p = new Product();
+        p.setName("Old Name");
+        p.setCategory("Category A");
+        Product saved = repository.save(p);
+
+        Product renamed = new Product();
+        renamed.setId(saved.getId());
+        renamed.setName("New Name");
+        renamed.setCategory("Category A");
+        repository.save(renamed);
+
+        assertFalse(repository.existsByName("Old Name"), "Old name should be released after rename");
+        assertTrue(repository.existsByName("New Name"), "New name should be indexed after rename");
+
+        repository.deleteById(saved.getId());
+        assertFalse(repository.existsByName("New Name"), "Name should be released after delete");
+    }
+
+    @Test
+    void conditionalUpdateFromSameVersionOnlyOneWins() throws Exception {
+        Product p = new Product();
+        p.setName("Shared");
+        p.setCategory("Category A");
+        Product saved = repository.save(p);
+        assertEquals(1, saved.getVersion());
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int writer = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        repository.update(saved.getId(), 1L, existing -> {
+                            Product next = new Product();
+                            next.setName("Shared");
+                            next.setCategory("Category A");
+                            next.setStockQuantity(writer);
+                            return next;
+                        });
+                        return true;
+                    } catch (VersionConflictException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+            int winners = 0;
+            for (Future<Boolean> future : futures) {
+                winners += future.get(10, TimeUnit.SECONDS) ? 1 : 0;
+            }
+            assertEquals(1, winners);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(2, repository.findById(saved.getId()).getVersion());
+        assertEquals(3, repository.update(saved.getId(), existing -> {
+                Product next = new Product();
+                next.setName(existing.getName());
+                next.setCategory(existing.getCategory());
+                return next;
+            }).getVersion(),
+            "An unconditional update still moves the version on");
+    }
+
+    @Test
+    void concurrentSavesWithSameNameOnlyOneWins() throws Exception {
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        try {
+            List<Future<Boolean>> attempts = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                attempts.add(executor.submit(() -> {
+                    Product p = new Product();
+                    p.setName(thread % 2 == 0 ? "Hot Item" : "HOT ITEM");
+                    p.setCategory("Category A");
+                    start.await();
+                    try {
+                        repository.save(p);
+                        return true;
+                    } catch (IllegalArgumentException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int winners = 0;
+            for (Future<Boolean> attempt : attempts) {
+                if (attempt.get(30, TimeUnit.SECONDS)) {
+                    winners++;
+                }
+            }
+            assertEquals(1, winners, "Exactly one concurrent save should claim the name");
+            assertEquals(1, repository.findAll().size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void categoryAndStockIndexesFollowWrites() {
+        Product p = new Product();
+        p.setName("Test Product");
+        p.setCategory(" Frozen Food ");
+        p.setStockQuantity(5);
+        Product saved = repository.save(p);
+
+        assertEquals(Set.of(saved.getId()), repository.findIdsByCategories(List.of("FROZEN")));
+        assertEquals(Set.of(saved.getId()), repository.findIdsByStock(true));
+        assertTrue(repository.findIdsByStock(false).isEmpty());
+
+        Product moved = new Product();
+        moved.setId(saved.getId());
+        moved.setName("Test Product");
+        moved.setCategory("Bakery");
+        moved.setStockQuantity(0);
+        repository.save(moved);
+
+        assertTrue(repository.findIdsByCategories(List.of("frozen")).isEmpty(), "Old category should be unindexed");
+        assertEquals(Set.of(saved.getId()), repository.findIdsByCategories(List.of("bake")));
+        assertEquals(Set.of(saved.getId()), repository.findIdsByStock(false));
+        assertTrue(repository.findIdsByStock(true).isEmpty());
+
+        repository.deleteById(saved.getId());
+        assertTrue(repository.findIdsByCategories(List.of("bakery")).isEmpty());
+        assertTrue(repository.findIdsByStock(false).isEmpty());
+    }
+
+    @Test
+    void nameSearchMatchesFullScan() {
+        Random random = new Random(42);
+        String alphabet = "abcdeé ";
+        for (int i = 0; i < 500; i++) {
+            Product p = new Product();
+            p.setName(randomWord(random, alphabet, 1 + random.nextInt(12)) + " #" + i);
+            p.setCategory("Category A");
+            Product saved = repository.save(p);
+
+            if (i % 7 == 0) {
+                Product renamed = new Product();
+                renamed.setId(saved.getId());
+                renamed.setName(randomWord(random, alphabet, 1 + random.nextInt(12)).toUpperCase() + " #" + i);
+                renamed.setCategory("Category A");
+                repository.save(renamed);
+            } else if (i % 11 == 0) {
+                repository.deleteById(saved.getId());
+            }
+        }
+
+        for (int q = 0; q < 200; q++) {
+            String fragment = randomWord(random, alphabet, 1 + random.nextInt(4));
+            Set<Long> expected = repository.findAll().stream()
+                .filter(p -> p.getName().toLowerCase(Locale.ROOT).contains(fragment))
+                .map(Product::getId)
+                .collect(Collectors.toSet());
+            assertEquals(expected, repository.findIdsByNameContaining(fragment.toUpperCase()), "Mismatch for '" + fragment + "'");
+        }
+    }
+
+    @Test
+    void nullOrEmptyNameFragmentMatchesEveryProduct() {
+        Product named = new Product();
+        named.setName("Milk");
+        Product unnamed = new Product();
+        repository.save(named);
+        repository.save(unnamed);
+
+        Set<Long> all = Set.of(named.getId(), unnamed.getId());
+        assertEquals(all, repository.findIdsByNameContaining(null));
+        assertEquals(all, repository.findIdsByNameContaining(""));
+    }
+
+    @Test
+    void categoriesAreDictionaryEncoded() {
+        Product apple = new Product();
+        apple.setName("Apple");
+        apple.setCategory(new String("Fruit"));
+        apple.setStockQuantity(2);
+        apple.setUnitPrice(1.5);
+        Product pear = new Product();
+        pear.setName("Pear");
+        pear.setCategory(new String("Fruit"));
+        pear.setStockQuantity(4);
+        pear.setUnitPrice(2);
+        Product lowercase = new Product();
+        lowercase.setName("Plum");
+        lowercase.setCategory(" fruit ");
+        lowercase.setStockQuantity(1);
+        lowercase.setUnitPrice(3);
+        repository.save(apple);
+        repository.save(pear);
+        repository.save(lowercase);
+
+        assertSame(repository.findById(apple.getId()).getCategory(), repository.findById(pear.getId()).getCategory(),
+            "Products share one String per category");
+        assertEquals(3, repository.findIdsByCategories(List.of("FRUIT")).size(), "Filtering matches every spelling");
+        assertEquals(Set.of("Fruit", " fruit "),
+            repository.findCategoryMetrics().stream().map(InventoryMetric::getCategory).collect(Collectors.toSet()),
+            "Metrics keep each spelling as its own group");
+    }
+
+    private static String randomWord(Random random, String alphabet, int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
 }
@@ -0,0 +1,141 @@
+package com.example.inventory_service.repository;
+
+import com.example.inventory_service.model.Product;
+import com.example.inventory_service.model.StorableDate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private static Product product(long id, String name, String category, LocalDate expiration) {
+        Product p = new Product();
+        p.setId(id);
+        p.setName(name);
+        p.setCategory(category);
+        p.setUnitPrice(id * 1.5);
+        p.setStockQuantity((int) id % 3);
+        p.setExpirationDate(expiration);
+        p.setCreationDate(LocalDate.of(2025, 1, 1));
+        p.setVersion(id * 10);
+        return p;
+    }
+
+    private ProductSnapshot writeAndOpen(List<Product> products) throws IOException {
+        Path file = directory.resolve("snapshot.bin");
+        ProductSnapshot.write(file, 42, products);
+        return ProductSnapshot.open(file);
+    }
+
+    @Test
+    void roundTripsEveryColumn() throws IOException {
+        ProductSnapshot snapshot = writeAndOpen(List.of(
+            product(7, "Crème brûlée", "Desserts", LocalDate.of(2031, 3, 4)),
+            product(3, "Apple", "Fruit", null),
+            product(5, null, null, LocalDate.of(1999, 12, 31))));
+
+        assertEquals(42, snapshot.nextId());
+        assertEquals(3, snapshot.rows());
+        assertEquals(3, snapshot.id(0), "Rows are ordered by ID");
+
+        Product dessert = snapshot.read(snapshot.rowOf(7));
+        assertEquals("Crème brûlée", dessert.getName());
+        assertEquals("Desserts", dessert.getCategory());
+        assertEquals(10.5, dessert.getUnitPrice());
+        assertEquals(1, dessert.getStockQuantity());
+        assertEquals(LocalDate.of(2031, 3, 4), dessert.getExpirationDate());
+        assertEquals(LocalDate.of(2025, 1, 1), dessert.getCreationDate());
+        assertNull(dessert.getLastUpdatedDate());
+        assertEquals(70, dessert.getVersion());
+
+        assertNull(snapshot.read(snapshot.rowOf(3)).getExpirationDate());
+        Product unnamed = snapshot.read(snapshot.rowOf(5));
+        assertNull(unnamed.getName());
+        assertNull(unnamed.getCategory());
+        assertEquals(-1, snapshot.rowOf(4));
+    }
+
+    @Test
+    void roundTripsTheBoundaryDates() throws IOException {
+        LocalDate earliest = LocalDate.ofEpochDay(StorableDate.MIN_EPOCH_DAY);
+        LocalDate latest = LocalDate.ofEpochDay(StorableDate.MAX_EPOCH_DAY);
+        Product product = product(1, "Honey", "Pantry", latest);
+        product.setCreationDate(earliest);
+        product.setLastUpdatedDate(latest);
+
+        Product read = writeAndOpen(List.of(product)).read(0);
+        assertEquals(latest, read.getExpirationDate());
+        assertEquals(earliest, read.getCreationDate());
+        assertEquals(latest, read.getLastUpdatedDate());
+    }
+
+    @Test
+    void sharedStringsAreDecodedOnce() throws IOException {
+        ProductSnapshot snapshot = writeAndOpen(List.of(
+            product(1, "Apple", "Fruit", null),
+            product(2, "Pear", "Fruit", null)));
+
+        assertSame(snapshot.read(0).getCategory(), snapshot.read(1).getCategory());
+    }
+
+    @Test
+    void corruptHeaderIsRejected() throws IOException {
+        Path file = directory.resolve("snapshot.bin");
+        ProductSnapshot.write(file, 1, List.of(product(1, "Apple", "Fruit", null)));
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[10] ^= 1;
+        Files.write(file, bytes);
+
+        assertThrows(IOException.class, () -> ProductSnapshot.open(file));
+    }
+
+    @Test
+    void corruptSectionIsRejectedWhenFirstRead() throws IOException {
+        Path file = directory.resolve("snapshot.bin");
+        ProductSnapshot.write(file, 1, List.of(product(1, "Apple", "Fruit", null)));
+        byte[] bytes = Files.readAllBytes(file);
+        // The creation date column of the single row
+        bytes[24 + 8 + 8 + 4 + 4 + 2] ^= 1;
+        Files.write(file, bytes);
+
+        ProductSnapshot snapshot = ProductSnapshot.open(file);
+        assertEquals("Apple", snapshot.readIndexed(0, new Product()).getName(), "Other sections are still readable");
+        assertThrows(UncheckedIOException.class, () -> snapshot.read(0));
+    }
+
+    @Test
+    void storeHydratesRowsOnFirstRead() throws IOException {
+        HeapProductStore store = new HeapProductStore();
+        store.restore(writeAndOpen(List.of(
+            product(1, "Apple", "Fruit", null),
+            product(2, "Pear", "Fruit", null),
+            product(3, "Plum", "Fruit", null))));
+
+        assertEquals(3, store.size());
+        assertTrue(store.contains(2));
+        assertSame(store.get(2), store.get(2), "A hydrated row is kept");
+
+        assertEquals("Pear", store.remove(2).getName());
+        assertNull(store.get(2));
+        assertFalse(store.contains(2));
+
+        Product replacement = product(3, "Red Plum", "Fruit", null);
+        assertEquals("Plum", store.put(replacement).getName());
+        store.put(product(4, "Fig", "Fruit", null));
+
+        assertEquals(3, store.size());
+        assertEquals(List.of("Apple", "Red Plum", "Fig"),
+            store.values().stream().map(Product::getName).toList());
+    }
+}
@@ -0,0 +1,453 @@
+package com.example.inventory_service.repository;
+
+import com.example.inventory_service.model.Product;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteAheadLogPersistenceTest {
+
+    @TempDir
+    Path directory;
+
+    private WriteAheadLogPersistence persistence;
+
+    private InMemoryProductRepository open(DurabilityMode mode) {
+        persistence = new WriteAheadLogPersistence(directory, mode, 10);
+        return new InMemoryProductRepository(persistence);
+    }
+
+    private static Product product(String name, String category, double price, int stock) {
+        Product p = new Product();
+        p.setName(name);
+        p.setCategory(category);
+        p.setUnitPrice(price);
+        p.setStockQuantity(stock);
+        p.setExpirationDate(LocalDate.of(2030, 1, 15));
+        p.setCreationDate(LocalDate.of(2025, 6, 1));
+        return p;
+    }
+
+    @ParameterizedTest
+    @EnumSource(DurabilityMode.class)
+    void writesSurviveRestart(DurabilityMode mode) {
+        InMemoryProductRepository repository = open(mode);
+        Product apple = repository.save(product("Apple", "Fruit", 1.25, 10));
+        Product bread = repository.save(product("Bread", "Bakery", 2.5, 0));
+        repository.save(product("Milk", "Dairy", 0.99, 3));
+        Product renamed = product("Green Apple", "Fruit", 1.5, 8);
+        renamed.setId(apple.getId());
+        repository.save(renamed);
+        repository.deleteById(bread.getId());
+        // Simulates a crash: the log is closed without a final snapshot
+        closeWithoutSnapshot();
+
+        InMemoryProductRepository recovered = open(mode);
+        assertEquals(2, recovered.count());
+        Product restored = recovered.findById(apple.getId());
+        assertEquals("Green Apple", restored.getName());
+        assertEquals(1.5, restored.getUnitPrice());
+        assertEquals(8, restored.getStockQuantity());
+        assertEquals(LocalDate.of(2030, 1, 15), restored.getExpirationDate());
+        assertEquals(LocalDate.of(2025, 6, 1), restored.getCreationDate());
+        assertEquals(2, restored.getVersion());
+        assertNull(recovered.findById(bread.getId()));
+        assertTrue(recovered.existsByName("milk"), "Indexes are rebuilt on recovery");
+        assertFalse(recovered.existsByName("apple"), "The old name was released by the rename");
+        assertEquals(1, recovered.findIdsByCategories(List.of("dair")).size());
+        recovered.close();
+    }
+
+    @Test
+    void recoveryCombinesSnapshotAndLogTail() throws IOException {
+        InMemoryProductRepository repository = open(DurabilityMode.SYNC);
+        Product apple = repository.save(product("Apple", "Fruit", 1.25, 10));
+        Product bread = repository.save(product("Bread", "Bakery", 2.5, 4));
+        repository.snapshot();
+        repository.deleteById(apple.getId());
+        Product milk = repository.save(product("Milk", "Dairy", 0.99, 3));
+        repository.update(bread.getId(), existing -> product("Rye Bread", "Bakery", 3.0, 4));
+        closeWithoutSnapshot();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.filter(f -> f.getFileName().toString().startsWith("snapshot-")).count());
+        }
+
+        InMemoryProductRepository recovered = open(DurabilityMode.SYNC);
+        assertEquals(2, recovered.count());
+        assertNull(recovered.findById(apple.getId()));
+        assertEquals("Milk", recovered.findById(milk.getId()).getName());
+        assertEquals(2, recovered.findById(bread.getId()).getVersion(), "Versions continue from the snapshot");
+        recovered.close();
+    }
+
+    @Test
+    void snapshotRemovesReplacedSegments() throws IOException {
+        InMemoryProductRepository repository = open(DurabilityMode.BATCHED);
+        for (int i = 0; i < 50; i++) {
+            repository.save(product("Product " + i, "Category", i, i));
+        }
+        repository.snapshot();
+        repository.snapshot();
+        repository.close();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            List<String> names = files.map(f -> f.getFileName().toString()).sorted().toList();
+            assertEquals(1, names.stream().filter(n -> n.startsWith("snapshot-")).count(), names.toString());
+            assertEquals(1, names.stream().filter(n -> n.startsWith("wal-")).count(), names.toString());
+        }
+
+        InMemoryProductRepository recovered = open(DurabilityMode.BATCHED);
+        assertEquals(50, recovered.count());
+        recovered.close();
+    }
+
+    @Test
+    void unreadableSnapshotFailsStartup() throws IOException {
+        InMemoryProductRepository repository = open(DurabilityMode.SYNC);
+        repository.save(product("Apple", "Fruit", 1.25, 10));
+        repository.snapshot();
+        repository.save(product("Bread", "Bakery", 2.5, 4));
+        closeWithoutSnapshot();
+
+        Path snapshot;
+        try (Stream<Path> files = Files.list(directory)) {
+            snapshot = files.filter(f -> f.getFileName().toString().startsWith("snapshot-")).findFirst().orElseThrow();
+        }
+        byte[] bytes = Files.readAllBytes(snapshot);
+        // The header, which is verified when the snapshot is opened
+        bytes[10] ^= 1;
+        Files.write(snapshot, bytes);
+
+        assertThrows(UncheckedIOException.class, () -> open(DurabilityMode.SYNC),
+            "The segments before the snapshot are gone, so it cannot be skipped");
+    }
+
+    @Test
+    void corruptColumnFailsIndexedReadsAfterStartup() throws IOException {
+        InMemoryProductRepository repository = open(DurabilityMode.SYNC);
+        Product apple = repository.save(product("Apple", "Fruit", 1.25, 10));
+        repository.close();
+
+        Path snapshot;
+        try (Stream<Path> files = Files.list(directory)) {
+            snapshot = files.filter(f -> f.getFileName().toString().startsWith("snapshot-")).findFirst().orElseThrow();
+        }
+        byte[] bytes = Files.readAllBytes(snapshot);
+        // The name column of the single row, only verified when the indexes are built
+        bytes[24 + 8 + 8 + 4 * 4 + 1] ^= 1;
+        Files.write(snapshot, bytes);
+
+        InMemoryProductRepository recovered = open(DurabilityMode.SYNC);
+        assertTrue(recovered.existsById(apple.getId()), "Lookups by ID do not wait for the indexes");
+        assertThrows(IllegalStateException.class, () -> recovered.existsByName("Apple"));
+        assertThrows(IllegalStateException.class, () -> recovered.save(product("Bread", "Bakery", 2.5, 4)));
+        closeWithoutSnapshot();
+    }
+
+    @Test
+    void tornTailIsIgnored() throws IOException {
+        InMemoryProductRepository repository = open(DurabilityMode.SYNC);
+        repository.save(product("Apple", "Fruit", 1.25, 10));
+        repository.save(product("Bread", "Bakery", 2.5, 4));
+        closeWithoutSnapshot();
+
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(f -> f.getFileName().toString().startsWith("wal-"))
+                .max(Path::compareTo).orElseThrow();
+        }
+        // Half a record, as left behind by a crash in the middle of a write
+        Files.write(segment, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        InMemoryProductRepository recovered = open(DurabilityMode.SYNC);
+        assertEquals(2, recovered.count());
+        recovered.save(product("Milk", "Dairy", 0.99, 3));
+        closeWithoutSnapshot();
+
+        InMemoryProductRepository again = open(DurabilityMode.SYNC);
+        assertEquals(3, again.count(), "Writes after a torn tail go to a fresh segment");
+        again.close();
+    }
+
+    @Test
+    void idsAreNotReusedAfterRestart() {
+        InMemoryProductRepository repository = open(DurabilityMode.SYNC);
+        repository.save(product("Apple", "Fruit", 1.25, 10));
+        Product bread = repository.save(product("Bread", "Bakery", 2.5, 4));
+        repository.deleteById(bread.getId());
+        repository.close();
+
+        InMemoryProductRepository recovered = open(DurabilityMode.SYNC);
+        Product milk = recovered.save(product("Milk", "Dairy", 0.99, 3));
+        assertTrue(milk.getId() > bread.getId(), "A deleted product's ID must not be handed out again");
+        recovered.close();
+    }
+
+    @Test
+    void clearIsPersisted() {
+        InMemoryProductRepository repository = open(DurabilityMode.ASYNC);
+        repository.save(product("Apple", "Fruit", 1.25, 10));
+        repository.clear();
+        repository.save(product("Bread", "Bakery", 2.5, 4));
+        closeWithoutSnapshot();
+
+        InMemoryProductRepository recovered = open(DurabilityMode.ASYNC);
+        assertEquals(1, recovered.count());
+        assertTrue(recovered.existsByName("Bread"));
+        recovered.close();
+    }
+
+    @Test
+    void writesThatCannotBeLoggedAreNotApplied() {
+        InMemoryProductRepository repository = open(DurabilityMode.SYNC);
+        List<Product> seen = new ArrayList<>();
+        repository.addChangeListener(new ProductChangeListener() {
+            @Override
+            public void changed(Product previous, Product current) {
+                seen.add(current);
+            }
+
+            @Override
+            public void reset() {
+            }
+        });
+        Product apple = repository.save(product("Apple", "Fruit", 1.25, 10));
+        long generation = repository.generation();
+        // Too long for the log's string encoding
+        String tooLong = "x".repeat(70_000);
+
+        assertThrows(IllegalArgumentException.class, () -> repository.save(product(tooLong, "Fruit", 1, 1)));
+        assertThrows(IllegalArgumentException.class, () -> repository.writeBatch(batch -> {
+            batch.save(product("Bread", "Bakery", 2.5, 4));
+            batch.deleteById(apple.getId());
+            batch.save(product("Milk", tooLong, 0.99, 3));
+        }));
+
+        assertEquals(1, repository.count());
+        assertEquals(generation, repository.generation(), "Nothing was applied");
+        assertEquals(List.of(apple), seen, "Listeners only hear about durable writes");
+        assertFalse(repository.existsByName(tooLong), "The failed write's name was released");
+        assertFalse(repository.existsByName("Bread"), "Earlier writes in the failed batch were never applied");
+        assertSame(apple, repository.findById(apple.getId()));
+        assertEquals(1, repository.findIdsByCategories(List.of("Fruit")).size());
+        assertTrue(repository.findIdsByCategories(List.of("Bakery")).isEmpty());
+        closeWithoutSnapshot();
+
+        InMemoryProductRepository recovered = open(DurabilityMode.SYNC);
+        assertEquals(1, recovered.count());
+        assertTrue(recovered.existsByName("Apple"));
+        recovered.close();
+    }
+
+    @Test
+    void failedWritesAreCutOffTheSegment() {
+        FailingWrites failing = new FailingWrites();
+        persistence = failing;
+        InMemoryProductRepository repository = new InMemoryProductRepository(persistence);
+        repository.save(product("Apple", "Fruit", 1.25, 10));
+        failing.failWrites = true;
+        assertThrows(UncheckedIOException.class, () -> repository.save(product("Bread", "Bakery", 2.5, 4)));
+        failing.failWrites = false;
+        repository.save(product("Milk", "Dairy", 0.99, 3));
+        closeWithoutSnapshot();
+
+        InMemoryProductRepository recovered = open(DurabilityMode.SYNC);
+        assertEquals(2, recovered.count(), "Records after a failed write are still replayed");
+        assertTrue(recovered.existsByName("Milk"));
+        assertFalse(recovered.existsByName("Bread"));
+        recovered.close();
+    }
+
+    @Test
+    void logRefusesWritesOnceAFailedWriteCannotBeCutOff() {
+        FailingWrites failing = new FailingWrites();
+        persistence = failing;
+        InMemoryProductRepository repository = new InMemoryProductRepository(persistence);
+        repository.save(product("Apple", "Fruit", 1.25, 10));
+        failing.failWrites = true;
+        failing.failTruncate = true;
+        assertThrows(UncheckedIOException.class, () -> repository.save(product("Bread", "Bakery", 2.5, 4)));
+        failing.failWrites = false;
+        assertThrows(IllegalStateException.class, () -> repository.save(product("Milk", "Dairy", 0.99, 3)));
+        assertEquals(1, repository.count());
+        assertFalse(repository.existsByName("Milk"));
+        closeWithoutSnapshot();
+    }
+
+    /** Writes half of each buffer and then fails while failWrites is set. */
+    private class FailingWrites extends WriteAheadLogPersistence {
+        volatile boolean failWrites;
+        volatile boolean failTruncate;
+
+        FailingWrites() {
+            super(directory, DurabilityMode.SYNC, 10);
+        }
+
+        @Override
+        FileChannel openSegment(long number) throws IOException {
+            FileChannel delegate = super.openSegment(number);
+            return new FileChannel() {
+                @Override
+                public int write(ByteBuffer source) throws IOException {
+                    if (failWrites) {
+                        source.limit(source.position() + source.remaining() / 2);
+                        delegate.write(source);
+                        throw new IOException("Disk full");
+                    }
+                    return delegate.write(source);
+                }
+
+                @Override
+                public FileChannel truncate(long size) throws IOException {
+                    if (failTruncate) {
+                        throw new IOException("Disk gone");
+                    }
+                    delegate.truncate(size);
+                    return this;
+                }
+
+                @Override
+                public void force(boolean metaData) throws IOException {
+                    delegate.force(metaData);
+                }
+
+                @Override
+                public long size() throws IOException {
+                    return delegate.size();
+                }
+
+                @Override
+                public long position() throws IOException {
+                    return delegate.position();
+                }
+
+                @Override
+                public FileChannel position(long position) throws IOException {
+                    delegate.position(position);
+                    return this;
+                }
+
+                @Override
+                protected void implCloseChannel() throws IOException {
+                    delegate.close();
+                }
+
+                @Override
+                public int read(ByteBuffer destination) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public long read(ByteBuffer[] destinations, int offset, int length) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public long write(ByteBuffer[] sources, int offset, int length) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public long transferTo(long position, long count, WritableByteChannel target) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public long transferFrom(ReadableByteChannel source, long position, long count) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read(ByteBuffer destination, long position) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int write(ByteBuffer source, long position) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public MappedByteBuffer map(MapMode mode, long position, long size) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public FileLock lock(long position, long size, boolean shared) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public FileLock tryLock(long position, long size, boolean shared) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+
+    @Test
+    void virtualThreadWritersNeverPinTheirCarrier() throws Exception {
+        InMemoryProductRepository repository = open(DurabilityMode.SYNC);
+        Product hot = repository.save(product("Hot", "Fruit", 1.0, 0));
+        Path events = directory.resolve("pinning.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+            // Every blocking point of the write path: stripe and global locks, log syncs, snapshots
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < 200; i++) {
+                    int n = i;
+                    executor.submit(() -> {
+                        repository.save(product("Item " + n, "Fruit", 1.0, n));
+                        repository.update(hot.getId(), existing -> product("Hot", "Fruit", 1.0, existing.getStockQuantity() + 1));
+                        repository.findAll();
+                        if (n % 50 == 0) {
+                            repository.snapshot();
+                        }
+                        return null;
+                    });
+                }
+            }
+            recording.stop();
+            recording.dump(events);
+        }
+
+        List<String> pinned = RecordingFile.readAllEvents(events).stream()
+            .filter(event -> event.getEventType().getName().equals("jdk.VirtualThreadPinned"))
+            .map(event -> String.valueOf(event.getStackTrace()))
+            .toList();
+        assertEquals(List.of(), pinned);
+        assertEquals(200, repository.findById(hot.getId()).getStockQuantity());
+        repository.close();
+    }
+
+    /** Closes the log of the most recently opened repository, skipping the shutdown snapshot. */
+    private void closeWithoutSnapshot() {
+        persistence.close();
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.inventory_service.service;
+
+import com.example.inventory_service.dto.MetricDelta;
+import com.example.inventory_service.model.Product;
+import com.example.inventory_service.repository.InMemoryProductRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductChangeFeedTest {
+
+    private InMemoryProductRepository repository;
+    private ProductChangeFeed feed;
+    // Deliveries are queued here and run by deliver(), so tests control when a slow subscriber catches up
+    private final List<Runnable> deliveries = new ArrayList<>();
+    private final List<String> events = new ArrayList<>();
+    private final List<Object> data = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        repository = new InMemoryProductRepository();
+        feed = new ProductChangeFeed(repository, deliveries::add);
+    }
+
+    private static Product product(String name, String category, double price, int stock) {
+        Product product = new Product();
+        product.setName(name);
+        product.setCategory(category);
+        product.setUnitPrice(price);
+        product.setStockQuantity(stock);
+        return product;
+    }
+
+    private static Product restocked(Product stored, int stock) {
+        Product product = product(stored.getName(), stored.getCategory(), stored.getUnitPrice(), stock);
+        product.setId(stored.getId());
+        return product;
+    }
+
+    private void deliver() {
+        while (!deliveries.isEmpty()) {
+            deliveries.remove(0).run();
+        }
+    }
+
+    private void subscribe() {
+        feed.subscribe((event, payload) -> {
+            events.add(event);
+            data.add(payload);
+        });
+    }
+
+    @Test
+    public void pendingChangesAreCoalescedPerProductUntilDelivered() {
+        Product existing = repository.save(product("Milk", "Dairy", 2.0, 10));
+        subscribe();
+
+        Product bread = repository.save(product("Bread", "Bakery", 1.5, 4));
+        repository.save(restocked(bread, 6));
+        repository.save(restocked(bread, 8));
+        Product cake = repository.save(product("Cake", "Bakery", 10.0, 1));
+        repository.deleteById(cake.getId());
+        repository.deleteById(existing.getId());
+        assertEquals(1, deliveries.size(), "one drain is scheduled for the whole burst");
+
+        deliver();
+
+        assertEquals(List.of(ProductChangeFeed.CREATED, ProductChangeFeed.DELETED, ProductChangeFeed.METRICS), events);
+        assertEquals(8, ((Product) data.get(0)).getStockQuantity());
+        assertEquals(Map.of("id", existing.getId()), data.get(1));
+        @SuppressWarnings("unchecked")
+        List<MetricDelta> metrics = (List<MetricDelta>) data.get(2);
+        assertEquals(2, metrics.size());
+        for (MetricDelta delta : metrics) {
+            if (delta.getCategory().equals("Dairy")) {
+                assertEquals(-10, delta.getTotalProducts());
+                assertEquals(-20.0, delta.getTotalValue(), 1e-9);
+            } else {
+                assertEquals("Bakery", delta.getCategory());
+                assertEquals(8, delta.getTotalProducts());
+                assertEquals(12.0, delta.getTotalValue(), 1e-9);
+            }
+        }
+
+        // Caught up: the next write is sent on its own
+        repository.save(restocked(bread, 0));
+        deliver();
+        assertEquals(ProductChangeFeed.UPDATED, events.get(3));
+        assertEquals(0, ((Product) data.get(3)).getStockQuantity());
+    }
+
+    @Test
+    public void overflowingSubscriberIsToldToResync() {
+        subscribe();
+        for (int i = 0; i <= ProductChangeFeed.MAX_PENDING; i++) {
+            repository.save(product("Product " + i, "Bulk", 1.0, 1));
+        }
+        deliver();
+        assertEquals(List.of(ProductChangeFeed.RESYNC), events);
+
+        repository.save(product("After", "Bulk", 1.0, 1));
+        repository.clear();
+        deliver();
+        assertEquals(List.of(ProductChangeFeed.RESYNC, ProductChangeFeed.RESYNC), events);
+    }
+
+    @Test
+    public void importChunksPendingTogetherDoNotForceAResync() {
+        subscribe();
+        for (int chunk = 0; chunk < 2; chunk++) {
+            List<Product> products = new ArrayList<>();
+            for (int i = 0; i < ProductService.IMPORT_CHUNK; i++) {
+                products.add(product("Product " + chunk + "-" + i, "Bulk", 1.0, 1));
+            }
+            repository.insertAll(products);
+        }
+        deliver();
+        assertFalse(events.contains(ProductChangeFeed.RESYNC));
+        assertEquals(2 * ProductService.IMPORT_CHUNK + 1, events.size(), "every product, then one metrics event");
+    }
+
+    @Test
+    public void failingSinkClosesItsSubscription() {
+        feed.subscribe((event, payload) -> {
+            throw new IOException("Broken pipe");
+        });
+        subscribe();
+
+        repository.save(product("Milk", "Dairy", 2.0, 10));
+        deliver();
+        repository.save(product("Eggs", "Dairy", 3.0, 12));
+        // Only the working subscriber is still scheduled
+        assertEquals(1, deliveries.size());
+        deliver();
+        assertEquals(List.of(ProductChangeFeed.CREATED, ProductChangeFeed.METRICS,
+            ProductChangeFeed.CREATED, ProductChangeFeed.METRICS), events);
+    }
+}
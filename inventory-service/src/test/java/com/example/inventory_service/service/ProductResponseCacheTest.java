@@ -0,0 +1,118 @@
+package com.example.inventory_service.service;
+
+import com.example.inventory_service.model.Product;
+import com.example.inventory_service.repository.InMemoryProductRepository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductResponseCacheTest {
+
+    private InMemoryProductRepository repository;
+    private SimpleMeterRegistry registry;
+    private ProductResponseCache cache;
+    private final AtomicInteger computed = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() {
+        repository = new InMemoryProductRepository();
+        registry = new SimpleMeterRegistry();
+        // Room for four 10-byte bodies
+        cache = new ProductResponseCache(repository, new ObjectMapper(), 40, registry);
+    }
+
+    /** A body serialized to exactly 10 bytes: the quoted string plus 8 characters. */
+    private ProductResponseCache.Response read(String ifNoneMatch, String key) {
+        return cache.get(ifNoneMatch, List.of(key), () -> {
+            computed.incrementAndGet();
+            return String.format("%-8s", key);
+        });
+    }
+
+    private double gets(String result) {
+        return registry.get("cache.gets").tag("cache", ProductResponseCache.NAME).tag("result", result).counter().count();
+    }
+
+    private void write(String name) {
+        Product product = new Product();
+        product.setName(name);
+        product.setCategory("Dairy");
+        repository.save(product);
+    }
+
+    @Test
+    public void bodiesAreServedFromTheCacheUntilTheNextWrite() {
+        ProductResponseCache.Response first = read(null, "a");
+        ProductResponseCache.Response second = read(null, "a");
+        assertEquals("\"a       \"", new String(second.body(), StandardCharsets.UTF_8));
+        assertSame(first.body(), second.body());
+        assertEquals(first.etag(), second.etag());
+        assertEquals(1, computed.get());
+
+        ProductResponseCache.Response unchanged = read("W/\"other\", " + first.etag(), "a");
+        assertTrue(unchanged.notModified());
+
+        write("Milk");
+        ProductResponseCache.Response afterWrite = read(first.etag(), "a");
+        assertFalse(afterWrite.notModified());
+        assertNotEquals(first.etag(), afterWrite.etag());
+        assertEquals(2, computed.get());
+        assertEquals(1, cache.size());
+
+        assertEquals(1, gets("hit"));
+        assertEquals(2, gets("miss"));
+        assertEquals(1, gets("not_modified"));
+    }
+
+    @Test
+    public void bodiesOverlappedByAWriteAreNeitherKeptNorTagged() {
+        ProductResponseCache.Response raced = cache.get(null, List.of("a"), () -> {
+            write("Milk");
+            return "body";
+        });
+        assertNull(raced.etag());
+        assertEquals("\"body\"", new String(raced.body(), StandardCharsets.UTF_8));
+        assertEquals(0, cache.size());
+
+        ProductResponseCache.Response next = read(null, "a");
+        assertNotNull(next.etag());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void leastRecentlyUsedBodiesAreEvictedPastTheByteBudget() {
+        read(null, "a");
+        read(null, "b");
+        read(null, "c");
+        read(null, "d");
+        read(null, "a");
+        read(null, "e");
+        assertEquals(4, cache.size());
+        assertEquals(40, cache.bytes());
+        assertEquals(1, registry.get("cache.evictions").counter().count());
+
+        // "b" was the least recently used, "a" was kept by its second read
+        computed.set(0);
+        read(null, "a");
+        assertEquals(0, computed.get());
+        read(null, "b");
+        assertEquals(1, computed.get());
+    }
+
+    @Test
+    public void bodiesOverAQuarterOfTheBudgetAreNotKept() {
+        cache.get(null, List.of("large"), () -> "x".repeat(20));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.bytes());
+    }
+}
@@ -1,12 +1,33 @@
 package com.example.inventory_service.service;
 
+import com.example.inventory_service.dto.BatchOperation;
+import com.example.inventory_service.dto.BatchResult;
+import com.example.inventory_service.dto.ImportSummary;
+import com.example.inventory_service.dto.PageResponse;
+import com.example.inventory_service.model.InventoryMetric;
 import com.example.inventory_service.model.Product;
 import com.example.inventory_service.repository.InMemoryProductRepository;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.StringReader;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -72,4 +93,540 @@ public class ProductServiceTest {
         assertEquals(18.0, result.getUnitPrice());
         assertEquals(12, result.getStockQuantity());
     }
+
+    // Test to verify that parallel creates never hand out the same ID
+    @Test
+    public void testConcurrentCreateAssignsUniqueIds() throws Exception {
+        int total = 4_000;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Product>> futures = IntStream.range(0, total)
+                .mapToObj(i -> executor.submit(() -> {
+                    Product p = new Product();
+                    p.setName("Producto " + i);
+                    p.setCategory("Abarrotes");
+                    p.setUnitPrice(1.0);
+                    p.setStockQuantity(1);
+                    return productService.createProduct(p);
+                }))
+                .toList();
+
+            Set<Long> ids = new HashSet<>();
+            for (Future<Product> future : futures) {
+                ids.add(future.get(30, TimeUnit.SECONDS).getId());
+            }
+
+            assertEquals(total, ids.size());
+            assertEquals(total, productService.getAllProducts().size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Test to verify that concurrent sales of one product are never lost
+    @Test
+    public void testConcurrentStockAdjustmentsOnHotProduct() throws Exception {
+        int stock = 1_000;
+        int attempts = 1_600;
+        Product hot = createProduct("Leche", "Lácteos", stock);
+        createProduct("Pan", "Panadería", 5);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = IntStream.range(0, attempts)
+                .mapToObj(i -> executor.submit(() -> {
+                    try {
+                        productService.adjustStock(hot.getId(), -1);
+                        return true;
+                    } catch (IllegalArgumentException e) {
+                        return false;
+                    }
+                }))
+                .toList();
+
+            int sold = 0;
+            for (Future<Boolean> future : futures) {
+                sold += future.get(30, TimeUnit.SECONDS) ? 1 : 0;
+            }
+
+            assertEquals(stock, sold);
+            assertEquals(0, productRepository.findById(hot.getId()).getStockQuantity());
+            assertTrue(productRepository.findIdsByStock(false).contains(hot.getId()));
+            assertFalse(productRepository.findIdsByStock(true).contains(hot.getId()));
+            assertTrue(productService.getInventoryMetrics().stream().noneMatch(m -> m.getCategory().equals("Lácteos")));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(7, productService.adjustStock(hot.getId(), 7).getStockQuantity());
+        assertThrows(IllegalArgumentException.class, () -> productService.adjustStock(hot.getId(), -8));
+        assertEquals(7, productRepository.findById(hot.getId()).getStockQuantity());
+        assertThrows(NoSuchElementException.class, () -> productService.adjustStock(999L, 1));
+    }
+
+    // Test to verify that an ID sent by the client is ignored on creation
+    @Test
+    public void testCreateProductIgnoresClientId() {
+        Product existing = new Product();
+        existing.setName("Queso");
+        existing.setCategory("Lácteos");
+        existing.setStockQuantity(3);
+        Product first = productService.createProduct(existing);
+
+        Product p = new Product();
+        p.setId(first.getId());
+        p.setName("Crema");
+        p.setCategory("Lácteos");
+        p.setStockQuantity(4);
+        Product created = productService.createProduct(p);
+
+        assertNotEquals(first.getId(), created.getId());
+        assertEquals("Queso", productRepository.findById(first.getId()).getName());
+    }
+
+    // Test to verify that names are unique ignoring case, on create and on update
+    @Test
+    public void testDuplicateNameIsRejected() {
+        Product p = new Product();
+        p.setName("Leche");
+        p.setCategory("Lácteos");
+        p.setStockQuantity(10);
+        productService.createProduct(p);
+
+        Product other = new Product();
+        other.setName("Yogur");
+        other.setCategory("Lácteos");
+        other.setStockQuantity(4);
+        Product yogur = productService.createProduct(other);
+
+        Product duplicate = new Product();
+        duplicate.setName("LECHE");
+        duplicate.setCategory("Lácteos");
+        duplicate.setStockQuantity(1);
+
+        assertThrows(IllegalArgumentException.class, () -> productService.createProduct(duplicate));
+        assertThrows(IllegalArgumentException.class, () -> productService.updateProduct(yogur.getId(), duplicate));
+        assertEquals("Yogur", productRepository.findById(yogur.getId()).getName());
+    }
+
+    // Test to verify that name, category and stock filters combine as before
+    @Test
+    public void testGetFilteredProducts() {
+        createProduct("Leche Entera", "Lácteos", 10);
+        createProduct("Leche Light", "Lácteos", 0);
+        createProduct("Pan Blanco", "Panadería", 3);
+        createProduct("Pan Dulce", "Panadería Fina", 0);
+
+        assertEquals(4, productService.getFilteredProducts(null, null, null).size());
+        assertEquals(2, productService.getFilteredProducts("leche", null, null).size());
+        assertEquals(2, productService.getFilteredProducts(null, List.of(" PANADERÍA "), null).size());
+        assertEquals(List.of("Pan Blanco"), names(productService.getFilteredProducts(null, List.of("panadería"), true)));
+        assertEquals(List.of("Leche Light", "Pan Dulce"), names(productService.getFilteredProducts(null, List.of("lác", "fina"), false)));
+        assertEquals(List.of("Leche Light"), names(productService.getFilteredProducts("LIGHT", List.of("lácteos"), false)));
+        assertTrue(productService.getFilteredProducts("pan", List.of("lácteos"), null).isEmpty());
+    }
+
+    // Test to verify that index-backed pages match a full stable sort for every field combination
+    @Test
+    public void testPaginatedProductsMatchFullSort() {
+        seedSortableProducts();
+
+        List<String> fields = Arrays.asList(null, "name", "category", "unitPrice", "stockQuantity", "expirationDate", "unknown");
+        List<String> directions = List.of("asc", "desc");
+        List<Product> byId = productService.getAllProducts().stream().sorted(Comparator.comparing(Product::getId)).toList();
+
+        for (String sortBy1 : fields) {
+            for (String sortBy2 : fields) {
+                for (String direction1 : directions) {
+                    for (String direction2 : directions) {
+                        List<Product> expected = new ArrayList<>(byId);
+                        if (sortBy1 != null) {
+                            Comparator<Product> comparator = referenceComparator(sortBy1, direction1);
+                            if (sortBy2 != null) {
+                                comparator = comparator.thenComparing(referenceComparator(sortBy2, direction2));
+                            }
+                            expected.sort(comparator);
+                        }
+                        for (int page : new int[] {0, 1, 4, 11, 12}) {
+                            PageResponse<Product> response = productService.getPaginatedProducts(page, 10, sortBy1, direction1, sortBy2, direction2);
+                            int from = Math.min(page * 10, expected.size());
+                            List<Long> expectedIds = expected.subList(from, Math.min(from + 10, expected.size()))
+                                .stream().map(Product::getId).toList();
+                            assertEquals(expectedIds, response.getContent().stream().map(Product::getId).toList(),
+                                "page " + page + " sorted by " + sortBy1 + " " + direction1 + ", " + sortBy2 + " " + direction2);
+                            assertEquals(expected.size(), response.getTotalElements());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // Test to verify that a zero-sized page is empty but still reports the total, and negative sizes are rejected
+    @Test
+    public void testZeroSizedPageIsEmpty() {
+        seedSortableProducts();
+        long total = productService.getAllProducts().size();
+
+        PageResponse<Product> response = productService.getPaginatedProducts(0, 0, "name", "asc", null, null);
+        assertTrue(response.getContent().isEmpty());
+        assertEquals(total, response.getTotalElements());
+        assertNull(response.getNextCursor());
+        assertTrue(productService.queryProducts(null, List.of("LÁC"), null, 3, 0, null, null, null, null, null)
+            .getContent().isEmpty());
+
+        assertThrows(IllegalArgumentException.class,
+            () -> productService.getPaginatedProducts(0, -1, null, null, null, null));
+    }
+
+    // Test to verify that following cursors visits the same rows as numbered pages
+    @Test
+    public void testCursorPaginationMatchesPageNumbers() {
+        seedSortableProducts();
+
+        List<String> fields = Arrays.asList(null, "name", "category", "unitPrice", "stockQuantity", "expirationDate", "unknown");
+        for (String sortBy1 : fields) {
+            for (String sortBy2 : fields) {
+                for (String direction : List.of("asc", "desc")) {
+                    List<Long> byPage = new ArrayList<>();
+                    List<Long> byCursor = new ArrayList<>();
+                    String cursor = null;
+                    for (int page = 0; page < 13; page++) {
+                        byPage.addAll(ids(productService.getPaginatedProducts(page, 7, sortBy1, direction, sortBy2, "desc").getContent()));
+                        PageResponse<Product> response = productService.getPaginatedProducts(0, 7, sortBy1, direction, sortBy2, "desc", cursor);
+                        byCursor.addAll(ids(response.getContent()));
+                        cursor = response.getNextCursor();
+                        if (cursor == null) {
+                            break;
+                        }
+                    }
+                    assertEquals(byPage, byCursor, "sorted by " + sortBy1 + " " + direction + ", " + sortBy2);
+                }
+            }
+        }
+    }
+
+    // Test to verify that a cursor keeps its position when rows are inserted before it
+    @Test
+    public void testCursorIsStableUnderInserts() {
+        seedSortableProducts();
+
+        PageResponse<Product> first = productService.getPaginatedProducts(0, 10, "name", "asc", null, null);
+        Product inserted = new Product();
+        inserted.setName("AAA first");
+        inserted.setCategory("Frutas");
+        inserted.setStockQuantity(1);
+        productService.createProduct(inserted);
+
+        PageResponse<Product> second = productService.getPaginatedProducts(0, 10, "name", "asc", null, null, first.getNextCursor());
+        PageResponse<Product> shifted = productService.getPaginatedProducts(1, 10, "name", "asc", null, null);
+
+        assertFalse(ids(second.getContent()).contains(first.getContent().get(9).getId()));
+        assertEquals(ids(shifted.getContent()).subList(1, 10), ids(second.getContent()).subList(0, 9));
+    }
+
+    // Test to verify that malformed cursors and cursors for another sort are rejected
+    @Test
+    public void testInvalidCursorIsRejected() {
+        seedSortableProducts();
+        String cursor = productService.getPaginatedProducts(0, 5, "name", "asc", null, null).getNextCursor();
+
+        assertThrows(IllegalArgumentException.class,
+            () -> productService.getPaginatedProducts(0, 5, "name", "asc", null, null, "not-a-cursor"));
+        assertThrows(IllegalArgumentException.class,
+            () -> productService.getPaginatedProducts(0, 5, "category", "asc", null, null, cursor));
+    }
+
+    // Test to verify that filtered pages match filtering and sorting the whole catalog
+    @Test
+    public void testQueryProductsMatchesFilterThenSort() {
+        seedSortableProducts();
+        List<Product> all = productService.getAllProducts();
+
+        // From very selective (candidate heap) to unselective (index walk) filters
+        List<Object[]> filters = List.of(
+            new Object[] {"item a", null, null},
+            new Object[] {null, List.of("frutas"), true},
+            new Object[] {null, List.of("lácteos"), null},
+            new Object[] {"item", null, true},
+            new Object[] {"i", List.of("a", "e"), false});
+        for (Object[] filter : filters) {
+            String name = (String) filter[0];
+            @SuppressWarnings("unchecked")
+            List<String> categories = (List<String>) filter[1];
+            Boolean inStock = (Boolean) filter[2];
+
+            List<Product> matching = all.stream()
+                .filter(p -> name == null || p.getName().toLowerCase().contains(name))
+                .filter(p -> categories == null || categories.stream().anyMatch(c -> p.getCategory().toLowerCase().contains(c)))
+                .filter(p -> inStock == null || inStock == p.getStockQuantity() > 0)
+                .sorted(Comparator.comparing(Product::getId))
+                .toList();
+
+            for (String sortBy1 : Arrays.asList(null, "name", "category", "unitPrice")) {
+                for (String sortBy2 : Arrays.asList(null, "stockQuantity", "expirationDate")) {
+                    List<Product> expected = new ArrayList<>(matching);
+                    if (sortBy1 != null) {
+                        Comparator<Product> comparator = referenceComparator(sortBy1, "desc");
+                        expected.sort(sortBy2 != null ? comparator.thenComparing(referenceComparator(sortBy2, "asc")) : comparator);
+                    }
+
+                    List<Long> byPage = new ArrayList<>();
+                    List<Long> byCursor = new ArrayList<>();
+                    String cursor = null;
+                    for (int page = 0; page * 4 < expected.size() + 4; page++) {
+                        PageResponse<Product> numbered = productService.queryProducts(name, categories, inStock, page, 4, sortBy1, "desc", sortBy2, "asc", null);
+                        assertEquals(expected.size(), numbered.getTotalElements());
+                        byPage.addAll(ids(numbered.getContent()));
+                        if (page == 0 || cursor != null) {
+                            PageResponse<Product> continued = productService.queryProducts(name, categories, inStock, 0, 4, sortBy1, "desc", sortBy2, "asc", cursor);
+                            byCursor.addAll(ids(continued.getContent()));
+                            cursor = continued.getNextCursor();
+                        }
+                    }
+                    String description = Arrays.toString(filter) + " sorted by " + sortBy1 + ", " + sortBy2;
+                    assertEquals(ids(expected), byPage, description);
+                    assertEquals(ids(expected), byCursor, description);
+                }
+            }
+        }
+    }
+
+    // Test to verify that running metrics match a full recomputation after creates, updates and deletes
+    @Test
+    public void testInventoryMetricsFollowWrites() {
+        seedSortableProducts();
+        Random random = new Random(3);
+        for (int i = 0; i < 60; i++) {
+            List<Product> all = productService.getAllProducts();
+            Product target = all.get(random.nextInt(all.size()));
+            if (i % 4 == 0) {
+                productService.deleteById(target.getId());
+            } else {
+                Product changed = copyWithName(target, target.getName());
+                changed.setStockQuantity(random.nextInt(3));
+                changed.setUnitPrice(random.nextInt(100) / 4.0);
+                changed.setCategory(random.nextBoolean() ? target.getCategory() : "Congelados");
+                productService.updateProduct(target.getId(), changed);
+            }
+        }
+
+        // Same computation the endpoint used to run on every call
+        Map<String, List<Product>> grouped = productService.getAllProducts().stream()
+            .filter(p -> !p.isOutOfStock())
+            .collect(Collectors.groupingBy(Product::getCategory));
+        Map<String, InventoryMetric> metrics = productService.getInventoryMetrics().stream()
+            .collect(Collectors.toMap(InventoryMetric::getCategory, m -> m));
+
+        assertEquals(grouped.size() + 1, metrics.size());
+        int overallQty = 0;
+        double overallValue = 0;
+        for (Map.Entry<String, List<Product>> entry : grouped.entrySet()) {
+            int qty = entry.getValue().stream().mapToInt(Product::getStockQuantity).sum();
+            double value = entry.getValue().stream().mapToDouble(p -> p.getUnitPrice() * p.getStockQuantity()).sum();
+            InventoryMetric metric = metrics.get(entry.getKey());
+            assertEquals(qty, metric.getTotalProducts(), entry.getKey());
+            assertEquals(value, metric.getTotalValue(), 1e-6, entry.getKey());
+            assertEquals(qty == 0 ? 0 : value / qty, metric.getAveragePrice(), 1e-6, entry.getKey());
+            overallQty += qty;
+            overallValue += value;
+        }
+        assertEquals(overallQty, metrics.get("Overall").getTotalProducts());
+        assertEquals(overallValue, metrics.get("Overall").getTotalValue(), 1e-6);
+    }
+
+    // Test to verify that metric values are not rounded, even for prices with many decimals
+    @Test
+    public void testInventoryMetricsKeepEveryDecimal() {
+        double[] prices = {0.00001, 1.0 / 3, 0.123456789};
+        for (int i = 0; i < prices.length; i++) {
+            Product p = createProduct("Especia " + i, "Especias", 7);
+            Product priced = copyWithName(p, p.getName());
+            priced.setUnitPrice(prices[i]);
+            productService.updateProduct(p.getId(), priced);
+        }
+        Product removed = createProduct("Especia retirada", "Especias", 3);
+        productService.deleteById(removed.getId());
+
+        double expected = Arrays.stream(prices).map(price -> price * 7).sum();
+        InventoryMetric spices = productService.getInventoryMetrics().stream()
+            .filter(m -> m.getCategory().equals("Especias")).findFirst().orElseThrow();
+        assertEquals(21, spices.getTotalProducts());
+        assertEquals(expected, spices.getTotalValue(), Math.ulp(expected));
+        assertEquals(expected / 21, spices.getAveragePrice(), Math.ulp(expected / 21));
+    }
+
+    @Test
+    void batchAppliesValidItemsAndReportsEachOutcome() {
+        Product existing = createProduct("Leche", "Lácteos", 5);
+        Product doomed = createProduct("Pan", "Panadería", 2);
+
+        Product fresh = new Product();
+        fresh.setName("Queso");
+        fresh.setCategory("Lácteos");
+        fresh.setUnitPrice(55.0);
+        fresh.setStockQuantity(3);
+        Product duplicate = copyWithName(fresh, "leche");
+        Product invalid = copyWithName(fresh, "");
+        Product renamed = copyWithName(fresh, "Leche entera");
+
+        List<BatchResult> results = productService.applyBatch(List.of(
+            new BatchOperation("create", null, fresh),
+            new BatchOperation("create", null, duplicate),
+            new BatchOperation("create", null, invalid),
+            new BatchOperation("update", existing.getId(), renamed),
+            new BatchOperation("update", 999L, renamed),
+            new BatchOperation("delete", doomed.getId(), null),
+            new BatchOperation("delete", 999L, null),
+            new BatchOperation("upsert", null, fresh)));
+
+        assertEquals(List.of(201, 400, 400, 200, 404, 204, 404, 400), results.stream().map(BatchResult::getStatus).toList());
+        assertEquals(IntStream.range(0, 8).boxed().toList(), results.stream().map(BatchResult::getIndex).toList());
+        assertTrue(results.get(2).getError().contains("name"), results.get(2).getError());
+
+        assertEquals("Queso", productRepository.findById(results.get(0).getId()).getName());
+        assertEquals("Leche entera", productRepository.findById(existing.getId()).getName());
+        assertEquals(existing.getCreationDate(), productRepository.findById(existing.getId()).getCreationDate());
+        assertFalse(productRepository.existsById(doomed.getId()));
+        assertFalse(productRepository.existsByName("leche"), "The renamed product released its old name");
+        assertEquals(2, productRepository.count());
+    }
+
+    @Test
+    void streamedBatchIsAppliedInChunksThatSeeEarlierOnes() {
+        List<BatchItem> items = new ArrayList<>();
+        for (int i = 0; i < ProductService.IMPORT_CHUNK; i++) {
+            Product product = new Product();
+            product.setName("Item " + i);
+            product.setCategory("Bebidas");
+            product.setUnitPrice(2.5);
+            product.setStockQuantity(i % 3);
+            items.add(new BatchItem(new BatchOperation("create", null, product), null));
+        }
+        items.add(new BatchItem(null, "Invalid JSON on line 1001."));
+        Product again = new Product();
+        again.setName("item 0");
+        again.setCategory("Bebidas");
+        items.add(new BatchItem(new BatchOperation("create", null, again), null));
+
+        List<BatchResult> results = productService.applyBatchItems(items.iterator());
+
+        assertEquals(items.size(), results.size());
+        assertEquals(IntStream.range(0, items.size()).boxed().toList(), results.stream().map(BatchResult::getIndex).toList());
+        assertTrue(results.subList(0, ProductService.IMPORT_CHUNK).stream().allMatch(r -> r.getStatus() == 201));
+        assertEquals("Invalid JSON on line 1001.", results.get(ProductService.IMPORT_CHUNK).getError());
+        BatchResult duplicate = results.get(ProductService.IMPORT_CHUNK + 1);
+        assertEquals(400, duplicate.getStatus(), "The second chunk sees the names the first one took");
+        assertEquals("Product with the same name already exists.", duplicate.getError());
+        assertEquals(ProductService.IMPORT_CHUNK, productRepository.count());
+    }
+
+    @Test
+    void importInsertsValidRowsAndReportsRejectedOnes() {
+        createProduct("Leche", "Lácteos", 5);
+        StringBuilder csv = new StringBuilder("name,category,unitPrice,stockQuantity,expirationDate\n");
+        csv.append("\"Queso, \"\"fresco\"\"\nde cabra\",Lácteos,55.5,3,2030-01-01\n"); // lines 2-3
+        csv.append("leche,Lácteos,20,1,\n");           // line 4: name taken
+        csv.append("Pan,Panadería,abc,1,\n");          // line 5: bad number
+        csv.append(",Panadería,10,1,\n");              // line 6: blank name
+        int bulk = ProductService.IMPORT_CHUNK + 10;
+        for (int i = 0; i < bulk; i++) {
+            csv.append("Item ").append(i).append(",Bebidas,2.5,").append(i % 3).append(",\n");
+        }
+
+        ImportSummary summary = productService.importProducts(ProductCsv.read(new StringReader(csv.toString())));
+
+        assertEquals(bulk + 4, summary.getRows());
+        assertEquals(bulk + 1, summary.getImported());
+        assertEquals(3, summary.getRejected());
+        assertEquals(List.of(4L, 5L, 6L), summary.getRejectedRows().stream().map(ImportSummary.RejectedRow::getLine).toList());
+        assertTrue(summary.getRejectedRows().get(1).getError().startsWith("unitPrice"));
+        assertTrue(summary.getRejectedRows().get(2).getError().contains("name"));
+
+        Product queso = productRepository.findById(2L);
+        assertEquals("Queso, \"fresco\"\nde cabra", queso.getName());
+        assertEquals(LocalDate.of(2030, 1, 1), queso.getExpirationDate());
+        assertEquals(LocalDate.now(), queso.getCreationDate());
+        assertEquals(bulk + 2, productRepository.count());
+
+        InventoryMetric drinks = productService.getInventoryMetrics().stream()
+            .filter(m -> m.getCategory().equals("Bebidas")).findFirst().orElseThrow();
+        long quantity = IntStream.range(0, bulk).map(i -> i % 3).sum();
+        assertEquals(quantity, drinks.getTotalProducts());
+        assertEquals(quantity * 2.5, drinks.getTotalValue(), 1e-6);
+    }
+
+    @Test
+    void streamedProductsMatchFilteredProducts() {
+        seedSortableProducts();
+        List<List<String>> categorySets = Arrays.asList(null, List.of(), List.of("LÁC"), List.of(" pan ", "zzz"));
+        for (String name : Arrays.asList(null, "ITEM a", "1", "none")) {
+            for (List<String> categories : categorySets) {
+                for (Boolean inStock : Arrays.asList(null, true, false)) {
+                    // Without filters getFilteredProducts returns the whole catalog in storage order
+                    List<Long> expected = ids(productService.getFilteredProducts(name, categories, inStock)).stream().sorted().toList();
+                    assertEquals(expected,
+                        ids(productService.streamProducts(name, categories, inStock).toList()),
+                        "name=" + name + " categories=" + categories + " inStock=" + inStock);
+                }
+            }
+        }
+    }
+
+    private void seedSortableProducts() {
+        Random random = new Random(7);
+        String[] categories = {"Lácteos", "lácteos", "Panadería", "Frutas", "Bebidas"};
+        for (int i = 0; i < 120; i++) {
+            Product p = new Product();
+            p.setName((random.nextBoolean() ? "Item " : "item ") + (char) ('a' + random.nextInt(26)) + i);
+            p.setCategory(categories[random.nextInt(categories.length)]);
+            p.setUnitPrice(random.nextInt(5) * 2.5);
+            p.setStockQuantity(random.nextInt(4));
+            p.setExpirationDate(random.nextInt(4) == 0 ? null : LocalDate.now().plusDays(random.nextInt(5)));
+            productService.createProduct(p);
+        }
+        // Deleting and renaming moves entries around in the indexes
+        productService.deleteById(3L);
+        productService.updateProduct(5L, copyWithName(productRepository.findById(5L), "zz renamed"));
+    }
+
+    private static Product copyWithName(Product source, String name) {
+        Product copy = new Product();
+        copy.setName(name);
+        copy.setCategory(source.getCategory());
+        copy.setUnitPrice(source.getUnitPrice());
+        copy.setStockQuantity(source.getStockQuantity());
+        copy.setExpirationDate(source.getExpirationDate());
+        return copy;
+    }
+
+    // Same ordering rules the endpoint has always used, applied to a full list
+    private static Comparator<Product> referenceComparator(String field, String direction) {
+        Comparator<Product> comparator = switch (field) {
+            case "name" -> Comparator.comparing(Product::getName, String.CASE_INSENSITIVE_ORDER);
+            case "category" -> Comparator.comparing(Product::getCategory, String.CASE_INSENSITIVE_ORDER);
+            case "unitPrice" -> Comparator.comparing(Product::getUnitPrice);
+            case "stockQuantity" -> Comparator.comparing(Product::getStockQuantity);
+            case "expirationDate" -> Comparator.comparing(p -> p.getExpirationDate() != null ? p.getExpirationDate() : LocalDate.MAX);
+            default -> Comparator.comparing(Product::getId);
+        };
+        return direction.equals("asc") ? comparator : comparator.reversed();
+    }
+
+    private Product createProduct(String name, String category, int stock) {
+        Product p = new Product();
+        p.setName(name);
+        p.setCategory(category);
+        p.setUnitPrice(10.0);
+        p.setStockQuantity(stock);
+        p.setExpirationDate(LocalDate.now().plusDays(10));
+        return productService.createProduct(p);
+    }
+
+    private static List<Long> ids(List<Product> products) {
+        return products.stream().map(Product::getId).toList();
+    }
+
+    private static List<String> names(List<Product> products) {
+        return products.stream().map(Product::getName).toList();
+    }
 }